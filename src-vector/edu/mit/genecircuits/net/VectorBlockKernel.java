@@ -0,0 +1,104 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * SIMD kernels of the BlockMaxTimesEngine using the Vector API (see BlockKernel). Requires
+ * the jdk.incubator.vector module at compile and run time, which is why it is in its own
+ * source root (src-vector, an optional compile step); do not reference this class directly,
+ * use BlockKernel.getKernel(). The lanes compute the same IEEE operations in the
+ * same order as the scalar kernels, the results are identical.
+ */
+public class VectorBlockKernel extends BlockKernel {
+
+	/** Preferred vector shape of the platform */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	public boolean linkWeights(double[] elementExpr, int eOffset, double[] transcriptExpr, int tOffset, 
+			double distanceWeight, double[] y, int n) {
+		
+		boolean active = false;
+		int bound = SPECIES.loopBound(n);
+		int s = 0;
+		
+		for (; s<bound; s+=SPECIES.length()) {
+			DoubleVector xe = DoubleVector.fromArray(SPECIES, elementExpr, eOffset + s);
+			VectorMask<Double> expressed = xe.compare(VectorOperators.NE, 0);
+			DoubleVector w;
+			if (transcriptExpr == null) {
+				w = xe.mul(distanceWeight);
+			} else {
+				DoubleVector xt = DoubleVector.fromArray(SPECIES, transcriptExpr, tOffset + s);
+				expressed = expressed.and(xt.compare(VectorOperators.NE, 0));
+				w = xe.mul(xt).sqrt().mul(distanceWeight);
+			}
+			w.blend(INACTIVE, expressed.not()).intoArray(y, s);
+			active |= expressed.anyTrue();
+		}
+		
+		// Tail of the block
+		if (scalarLinkWeights(elementExpr, eOffset, transcriptExpr, tOffset, distanceWeight, y, s, n))
+			active = true;
+		return active;
+	}
+	
+	
+	public void maxMerge(double[] y, double[] acc, int offset, int n) {
+		
+		int bound = SPECIES.loopBound(n);
+		int s = 0;
+		
+		for (; s<bound; s+=SPECIES.length()) {
+			DoubleVector a = DoubleVector.fromArray(SPECIES, acc, offset + s);
+			a.max(DoubleVector.fromArray(SPECIES, y, s)).intoArray(acc, offset + s);
+		}
+		scalarMaxMerge(y, acc, offset, s, n);
+	}
+	
+	
+	public void scaledMaxMerge(double c, double[] y, double[] acc, int offset, int n) {
+		
+		int bound = SPECIES.loopBound(n);
+		int s = 0;
+		
+		for (; s<bound; s+=SPECIES.length()) {
+			DoubleVector a = DoubleVector.fromArray(SPECIES, acc, offset + s);
+			a.max(DoubleVector.fromArray(SPECIES, y, s).mul(c)).intoArray(acc, offset + s);
+		}
+		scalarScaledMaxMerge(c, y, acc, offset, s, n);
+	}
+
+}
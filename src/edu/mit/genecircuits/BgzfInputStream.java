@@ -0,0 +1,313 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * Decompress a BGZF file (gzip members of at most 64 KB whose header gives the compressed
+ * size, see BgzfOutputStream) with several threads: the members are read sequentially, inflated
+ * in parallel on a (shared) executor, and returned in order. At most 4 members per thread are
+ * decompressed ahead. Plain gzip files (one member, members without the BGZF size field, or with
+ * other optional header fields) cannot be split without inflating them and must be read with
+ * GZIPInputStream (see isBgzf()).
+ */
+public class BgzfInputStream extends InputStream {
+
+	/** Size of the gzip header of a BGZF member */
+	private static final int HEADER_SIZE = 18;
+	/** Size of the gzip footer (CRC32, ISIZE) */
+	private static final int FOOTER_SIZE = 8;
+	
+	/** The compressed input */
+	private InputStream in_ = null;
+	/** Thread pool inflating the members (null: in the calling thread, not shut down by close()) */
+	private ExecutorService executor_ = null;
+	/** Members that are being inflated, in order */
+	private ArrayDeque<Future<byte[]>> pending_ = new ArrayDeque<Future<byte[]>>();
+	/** Max number of members inflated ahead */
+	private int maxPending_ = 0;
+	/** Set when all members have been read from in_ */
+	private boolean eof_ = false;
+	
+	/** The current decompressed member */
+	private byte[] block_ = new byte[0];
+	/** Position in block_ */
+	private int pos_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** 
+	 * Constructor, the input must start with a BGZF member (see isBgzf()). The members are inflated
+	 * with the given executor of numThreads threads (null = in the calling thread), which can be
+	 * shared with other streams (e.g., GcUtils.getIoExecutor()).
+	 */
+	public BgzfInputStream(InputStream in, ExecutorService executor, int numThreads) {
+
+		in_ = in;
+		executor_ = executor;
+		maxPending_ = 4 * (executor == null ? 1 : Math.max(1, numThreads));
+	}
+	
+	
+	/** Constructor, inflate in the calling thread */
+	public BgzfInputStream(InputStream in) {
+
+		this(in, null, 1);
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** True if the stream starts with a BGZF member (the stream must support mark/reset) */
+	public static boolean isBgzf(InputStream in) throws IOException {
+		
+		byte[] header = new byte[HEADER_SIZE];
+		in.mark(HEADER_SIZE);
+		int n = 0;
+		while (n < HEADER_SIZE) {
+			int k = in.read(header, n, HEADER_SIZE - n);
+			if (k < 0)
+				break;
+			n += k;
+		}
+		in.reset();
+		
+		return n == HEADER_SIZE && isBgzfHeader(header);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	@Override
+	public int read() throws IOException {
+		
+		if (pos_ == block_.length && !nextBlock())
+			return -1;
+		return block_[pos_++] & 0xff;
+	}
+	
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		
+		if (len == 0)
+			return 0;
+		if (pos_ == block_.length && !nextBlock())
+			return -1;
+		
+		int n = Math.min(len, block_.length - pos_);
+		System.arraycopy(block_, pos_, b, off, n);
+		pos_ += n;
+		return n;
+	}
+	
+	
+	@Override
+	public int available() {
+		
+		return block_.length - pos_;
+	}
+	
+	
+	@Override
+	public void close() throws IOException {
+		
+		// The executor may be shared, only the members of this stream are cancelled
+		for (Future<byte[]> future : pending_)
+			future.cancel(true);
+		pending_.clear();
+		in_.close();
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Move to the next non-empty member, return false at the end of the file */
+	private boolean nextBlock() throws IOException {
+		
+		while (true) {
+			// Read ahead
+			while (!eof_ && pending_.size() < maxPending_) {
+				final byte[] member = readMember();
+				if (member == null) {
+					eof_ = true;
+					break;
+				}
+				if (executor_ == null) {
+					pending_.add(new Done(inflate(member)));
+				} else {
+					pending_.add(executor_.submit(new Callable<byte[]>() {
+						public byte[] call() throws IOException {
+							return inflate(member);
+						}
+					}));
+				}
+			}
+			
+			if (pending_.isEmpty())
+				return false;
+			
+			try {
+				block_ = pending_.poll().get();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new IOException(e.getCause());
+			}
+			pos_ = 0;
+			
+			// Skip empty members (e.g., the BGZF end-of-file marker)
+			if (block_.length > 0)
+				return true;
+		}
+	}
+	
+	
+	/** Read the next member (header, compressed data and footer), null at the end of the file */
+	private byte[] readMember() throws IOException {
+		
+		byte[] header = new byte[HEADER_SIZE];
+		int n = in_.read(header, 0, HEADER_SIZE);
+		if (n < 0)
+			return null;
+		readFully(header, n, HEADER_SIZE - n);
+		
+		if (!isBgzfHeader(header))
+			throw new IOException("Not a BGZF member (plain gzip members cannot be mixed with BGZF members)");
+		
+		// BSIZE: total member size - 1
+		int size = ((header[16] & 0xff) | (header[17] & 0xff) << 8) + 1;
+		if (size < HEADER_SIZE + FOOTER_SIZE)
+			throw new IOException("Invalid BGZF member size: " + size);
+		
+		byte[] member = new byte[size];
+		System.arraycopy(header, 0, member, 0, HEADER_SIZE);
+		readFully(member, HEADER_SIZE, size - HEADER_SIZE);
+		return member;
+	}
+	
+	
+	/** Read exactly len bytes */
+	private void readFully(byte[] b, int off, int len) throws IOException {
+		
+		while (len > 0) {
+			int n = in_.read(b, off, len);
+			if (n < 0)
+				throw new EOFException("Truncated BGZF member");
+			off += n;
+			len -= n;
+		}
+	}
+	
+	
+	// ============================================================================
+	// STATIC METHODS
+	
+	/** 
+	 * True if the header is a gzip header with only the BGZF extra field (FLG is FEXTRA, XLEN 6, subfield
+	 * BC of length 2), so that the compressed data starts at HEADER_SIZE. Headers with a file name, a
+	 * comment or a header CRC are not BGZF (such files are read with GZIPInputStream).
+	 */
+	private static boolean isBgzfHeader(byte[] h) {
+		
+		return (h[0] & 0xff) == 31 && (h[1] & 0xff) == 139 && h[2] == 8 && h[3] == 4
+				&& h[10] == 6 && h[11] == 0 && h[12] == 'B' && h[13] == 'C' && h[14] == 2 && h[15] == 0;
+	}
+	
+	
+	/** Inflate a member and check its CRC32 and size */
+	private static byte[] inflate(byte[] member) throws IOException {
+		
+		int n = member.length;
+		int crc = (member[n-8] & 0xff) | (member[n-7] & 0xff) << 8 | (member[n-6] & 0xff) << 16 | (member[n-5] & 0xff) << 24;
+		int size = (member[n-4] & 0xff) | (member[n-3] & 0xff) << 8 | (member[n-2] & 0xff) << 16 | (member[n-1] & 0xff) << 24;
+		if (size < 0 || size > 1 << 16)
+			throw new IOException("Invalid BGZF member size: " + size);
+		
+		byte[] data = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(member, HEADER_SIZE, n - HEADER_SIZE - FOOTER_SIZE);
+			int length = 0;
+			while (length < size) {
+				int k = inflater.inflate(data, length, size - length);
+				if (k == 0 && (inflater.finished() || inflater.needsInput()))
+					break;
+				length += k;
+			}
+			if (length != size)
+				throw new IOException("Corrupt BGZF member (size)");
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		
+		CRC32 check = new CRC32();
+		check.update(data, 0, size);
+		if ((int) check.getValue() != crc)
+			throw new IOException("Corrupt BGZF member (CRC32)");
+		return data;
+	}
+	
+	
+	// ============================================================================
+	// DONE
+	
+	/** A member inflated in the calling thread */
+	private static class Done implements Future<byte[]> {
+		
+		/** The result */
+		private byte[] data_ = null;
+		
+		public Done(byte[] data) { data_ = data; }
+		
+		public boolean cancel(boolean mayInterruptIfRunning) { return false; }
+		public boolean isCancelled() { return false; }
+		public boolean isDone() { return true; }
+		public byte[] get() { return data_; }
+		public byte[] get(long timeout, TimeUnit unit) { return data_; }
+	}
+	
+}
@@ -0,0 +1,292 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * Write a BGZF file: a series of gzip members, each compressing at most BLOCK_SIZE bytes,
+ * whose header includes the compressed size (extra subfield "BC"), followed by an empty
+ * end-of-file member. The output is a valid (multi-member) gzip file that gunzip and
+ * GZIPInputStream can read, and that BgzfInputStream can decompress in parallel.
+ * If an executor is given, the blocks are compressed on its threads and written in order;
+ * at most MAX_PENDING blocks per stream are compressed ahead.
+ */
+public class BgzfOutputStream extends OutputStream {
+
+	/** Max uncompressed size of a member (the compressed member must fit in 64 KB) */
+	public static final int BLOCK_SIZE = 0xff00;
+	/** Max size of a member */
+	private static final int MAX_MEMBER_SIZE = 1 << 16;
+	/** Size of the gzip header of a BGZF member */
+	private static final int HEADER_SIZE = 18;
+	/** Size of the gzip footer (CRC32, ISIZE) */
+	private static final int FOOTER_SIZE = 8;
+	/** Max number of blocks of a stream being compressed by the executor */
+	public static final int MAX_PENDING = 16;
+	
+	/** The compressed output */
+	private OutputStream out_ = null;
+	/** Compression level (0-9) */
+	private int level_ = Deflater.DEFAULT_COMPRESSION;
+	/** Max uncompressed size of a block (at most BLOCK_SIZE) */
+	private int blockSize_ = BLOCK_SIZE;
+	/** Thread pool compressing the blocks (null to compress them in the calling thread) */
+	private ExecutorService executor_ = null;
+	/** Blocks that are being compressed, in order */
+	private ArrayDeque<Future<byte[]>> pending_ = new ArrayDeque<Future<byte[]>>();
+	/** The uncompressed data of the current block */
+	private byte[] block_ = null;
+	/** Number of bytes in block_ */
+	private int length_ = 0;
+	/** Set when closed */
+	private boolean closed_ = false;
+	/** Time (ns) spent compressing the blocks, summed over the threads */
+	private AtomicLong compressionTime_ = new AtomicLong();
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, blocks of blockSize bytes are compressed with the given executor (null = no executor) */
+	public BgzfOutputStream(OutputStream out, int level, int blockSize, ExecutorService executor) {
+
+		if (blockSize < 1 || blockSize > BLOCK_SIZE)
+			throw new IllegalArgumentException("BGZF block size must be between 1 and " + BLOCK_SIZE);
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Compression level must be between 0 and 9 (or -1 for the default)");
+		
+		out_ = out;
+		level_ = level;
+		blockSize_ = blockSize;
+		executor_ = executor;
+		block_ = new byte[blockSize];
+	}
+	
+	
+	/** Constructor, compress in the calling thread */
+	public BgzfOutputStream(OutputStream out, int level) {
+
+		this(out, level, BLOCK_SIZE, null);
+	}
+	
+	
+	/** Constructor, default compression level */
+	public BgzfOutputStream(OutputStream out) {
+
+		this(out, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	@Override
+	public void write(int b) throws IOException {
+		
+		if (length_ == blockSize_)
+			writeBlock();
+		block_[length_++] = (byte) b;
+	}
+	
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		
+		while (len > 0) {
+			if (length_ == blockSize_)
+				writeBlock();
+			int n = Math.min(len, blockSize_ - length_);
+			System.arraycopy(b, off, block_, length_, n);
+			length_ += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	
+	/** Compress and write the current block (if not empty) and the pending blocks, flush the output */
+	@Override
+	public void flush() throws IOException {
+		
+		if (length_ > 0)
+			writeBlock();
+		while (!pending_.isEmpty())
+			writePending();
+		out_.flush();
+	}
+	
+	
+	/** Write the last block and the end-of-file member, close the output */
+	@Override
+	public void close() throws IOException {
+		
+		if (closed_)
+			return;
+		closed_ = true;
+		
+		try {
+			if (length_ > 0)
+				writeBlock();
+			while (!pending_.isEmpty())
+				writePending();
+			out_.write(compress(new byte[0], 0, level_));
+		} finally {
+			for (Future<byte[]> future : pending_)
+				future.cancel(true);
+			pending_.clear();
+			out_.close();
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Compress data[0, length) into a BGZF member */
+	public static byte[] compress(byte[] data, int length, int level) {
+		
+		byte[] member = new byte[MAX_MEMBER_SIZE];
+		int size = deflate(data, length, level, member);
+		if (size < 0) {
+			// Incompressible data: store it (always fits, BLOCK_SIZE leaves room for the overhead)
+			size = deflate(data, length, Deflater.NO_COMPRESSION, member);
+			if (size < 0)
+				throw new RuntimeException("BGZF block too large");
+		}
+		
+		// Header: gzip magic, deflate, FEXTRA, no time, XFL 0, OS unknown, XLEN 6, subfield BC
+		int total = HEADER_SIZE + size + FOOTER_SIZE;
+		byte[] header = { 31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0, 
+				(byte) (total - 1), (byte) ((total - 1) >> 8) };
+		System.arraycopy(header, 0, member, 0, HEADER_SIZE);
+		
+		// Footer: CRC32 and size of the uncompressed data
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		putInt(member, HEADER_SIZE + size, (int) crc.getValue());
+		putInt(member, HEADER_SIZE + size + 4, length);
+		
+		byte[] result = new byte[total];
+		System.arraycopy(member, 0, result, 0, total);
+		return result;
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Compress and write the current block, or hand it to the executor */
+	private void writeBlock() throws IOException {
+		
+		if (executor_ == null) {
+			out_.write(compressTimed(block_, length_));
+			length_ = 0;
+			return;
+		}
+		
+		// Write the blocks that are done, wait if too many are pending
+		while (!pending_.isEmpty() && (pending_.size() >= MAX_PENDING || pending_.peek().isDone()))
+			writePending();
+		
+		final byte[] data = block_;
+		final int length = length_;
+		pending_.add(executor_.submit(new Callable<byte[]>() {
+			public byte[] call() {
+				return compressTimed(data, length);
+			}
+		}));
+		block_ = new byte[blockSize_];
+		length_ = 0;
+	}
+	
+	
+	/** Compress data[0, length) into a BGZF member, add the time to compressionTime_ */
+	private byte[] compressTimed(byte[] data, int length) {
+		
+		long t0 = System.nanoTime();
+		byte[] member = compress(data, length, level_);
+		compressionTime_.addAndGet(System.nanoTime() - t0);
+		return member;
+	}
+	
+	
+	/** Wait for the first pending block and write it */
+	private void writePending() throws IOException {
+		
+		try {
+			out_.write(pending_.poll().get());
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	
+	/** Raw deflate data[0, length) into member after the header, return the size or -1 if it does not fit */
+	private static int deflate(byte[] data, int length, int level, byte[] member) {
+		
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			int capacity = member.length - HEADER_SIZE - FOOTER_SIZE;
+			int size = 0;
+			while (!deflater.finished() && size < capacity)
+				size += deflater.deflate(member, HEADER_SIZE + size, capacity - size);
+			return deflater.finished() ? size : -1;
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	
+	/** Write a little endian int */
+	private static void putInt(byte[] b, int off, int x) {
+		
+		b[off] = (byte) x;
+		b[off+1] = (byte) (x >> 8);
+		b[off+2] = (byte) (x >> 16);
+		b[off+3] = (byte) (x >> 24);
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** Time (ns) spent compressing the blocks so far, summed over the threads */
+	public long getCompressionTime() { return compressionTime_.get(); }
+	
+}
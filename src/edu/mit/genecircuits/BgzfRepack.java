@@ -0,0 +1,131 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import edu.mit.genecircuits.net.BinaryFiles;
+
+
+/**
+ * Re-pack gzip files (e.g., the *_expr.txt.gz inputs) as BGZF, which FileParser then
+ * decompresses with several threads. The content is unchanged and the files remain
+ * readable with gunzip. Usage: BgzfRepack [-level <0-9>] <file.gz> ...
+ */
+public class BgzfRepack {
+
+	// ============================================================================
+	// PUBLIC METHODS
+
+	/** Re-pack the given files in place */
+	public static void main(String[] args) {
+		
+		int level = Deflater.DEFAULT_COMPRESSION;
+		int first = 0;
+		if (args.length > 1 && args[0].equals("-level")) {
+			level = Integer.parseInt(args[1]);
+			first = 2;
+		}
+		if (first == args.length) {
+			System.out.println("Usage: BgzfRepack [-level <0-9>] <file.gz> ...");
+			return;
+		}
+		
+		for (int i=first; i<args.length; i++)
+			repack(args[i], level);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Re-pack the given gzip file as BGZF (in place, through a unique temporary file that replaces
+	 * the original in one atomic rename, the original is never deleted first)
+	 */
+	public static void repack(String filename, int level) {
+		
+		File file = new File(filename);
+		File tmp = null;
+		InputStream in = null;
+		OutputStream out = null;
+		
+		try {
+			in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+			if (BgzfInputStream.isBgzf(in)) {
+				in.close();
+				GcMain.println("Already BGZF: " + filename);
+				return;
+			}
+			GcMain.println("Re-packing file: " + filename);
+			
+			in = new GZIPInputStream(in, 1 << 16);
+			tmp = BinaryFiles.createTempFile(file);
+			out = new BgzfOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16), level);
+			byte[] buffer = new byte[1 << 16];
+			for (int n=in.read(buffer); n>=0; n=in.read(buffer))
+				out.write(buffer, 0, n);
+			in.close();
+			in = null;
+			out.close();
+			out = null;
+			
+			BinaryFiles.replace(tmp, file);
+			
+		} catch (IOException e) {
+			// Only the temporary file is removed, the original is left as it was
+			close(in);
+			close(out);
+			if (tmp != null)
+				tmp.delete();
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Close the stream, ignore errors */
+	private static void close(Closeable stream) {
+		
+		try {
+			if (stream != null)
+				stream.close();
+		} catch (IOException e) {
+		}
+	}
+
+}
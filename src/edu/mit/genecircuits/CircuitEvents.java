@@ -0,0 +1,86 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+
+/**
+ * Hooks for profiling events of circuit construction: a sample (or block of samples) being
+ * wired, a file being parsed, a gene being aggregated into a circuit, a file being written.
+ * This class does nothing; get() returns the Java Flight Recorder implementation
+ * (JfrCircuitEvents) when the jdk.jfr module is available. The begin methods return an event
+ * handle, or null if the event is disabled, which is then passed to the end methods (the
+ * handle must not be shared between threads). With recording off, the cost is a check per call.
+ */
+public class CircuitEvents {
+
+	/** The JFR implementation, loaded by name so that the rest of the code doesn't depend on jdk.jfr */
+	private static final String JFR_EVENTS = "edu.mit.genecircuits.JfrCircuitEvents";
+	/** The instance returned by get() */
+	private static CircuitEvents instance_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Start of the wiring of a sample (or block of samples) */
+	public Object beginSample() { return null; }
+	/** End of the wiring, with the size of the circuits */
+	public void endSample(Object event, String samples, int numTfs, int numElements, int numGenes, long numEdges) {}
+	
+	/** Start of a file parse */
+	public Object beginParse() { return null; }
+	/** End of a file parse, with the bytes read from the file (compressed for .gz files) and the lines read */
+	public void endParse(Object event, String filename, long numBytes, long numLines) {}
+	
+	/** Start of the aggregation of a gene into a circuit */
+	public Object beginGene() { return null; }
+	/** End of the aggregation, with the tf and element fan-in before and the tf fan-in after pruning */
+	public void endGene(Object event, int gene, int tfFanIn, int elementFanIn, int tfsKept) {}
+	
+	/** Start of a file write */
+	public Object beginWrite() { return null; }
+	/** End of a file write, with the bytes written and the compression time (ns, summed over threads) */
+	public void endWrite(Object event, String filename, long numBytes, long compressionTime) {}
+	
+	
+	// ============================================================================
+	// STATIC METHODS
+	
+	/** The JFR events if available, otherwise an instance that does nothing */
+	public static synchronized CircuitEvents get() {
+		
+		if (instance_ == null) {
+			try {
+				instance_ = (CircuitEvents) Class.forName(JFR_EVENTS).getDeclaredConstructor().newInstance();
+			} catch (Throwable e) {
+				// ClassNotFoundException or NoClassDefFoundError / LinkageError without jdk.jfr
+				instance_ = new CircuitEvents();
+			}
+		}
+		return instance_;
+	}
+	
+}
@@ -0,0 +1,144 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+
+/**
+ * Fast parser for the decimal numbers of the input files ("12", "-0.5", "3.25e-4", ...),
+ * working directly on char ranges. Numbers with at most 15 significant digits and a small
+ * decimal exponent are converted exactly with a single multiplication or division by a power
+ * of ten (Clinger's fast path), which gives the same correctly rounded result as
+ * Double.parseDouble(). Everything else (more digits, large exponents, NaN, Infinity,
+ * hexadecimal, ...) falls back to Double.parseDouble().
+ */
+public class DecimalParser {
+
+	/** Powers of ten that are exact doubles */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	/** Max number of significant digits of the fast path (the mantissa is exact) */
+	private static final int MAX_DIGITS = 15;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+
+	/** Parse the number in buf[start, end) */
+	public static double parseDouble(char[] buf, int start, int end) {
+		
+		int pos = start;
+		boolean negative = false;
+		if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+			negative = buf[pos] == '-';
+			pos++;
+		}
+		
+		long mantissa = 0;
+		int numDigits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		
+		// Integer part (leading zeros are not significant)
+		for (; pos<end; pos++) {
+			int digit = buf[pos] - '0';
+			if (digit < 0 || digit > 9)
+				break;
+			hasDigits = true;
+			if (mantissa != 0 || digit != 0) {
+				mantissa = 10*mantissa + digit;
+				numDigits++;
+			}
+		}
+		
+		// Fraction
+		if (pos < end && buf[pos] == '.') {
+			pos++;
+			for (; pos<end; pos++) {
+				int digit = buf[pos] - '0';
+				if (digit < 0 || digit > 9)
+					break;
+				hasDigits = true;
+				if (mantissa != 0 || digit != 0) {
+					mantissa = 10*mantissa + digit;
+					numDigits++;
+				}
+				exponent--;
+			}
+		}
+		
+		// Exponent
+		if (hasDigits && pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+			pos++;
+			boolean negativeExp = false;
+			if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+				negativeExp = buf[pos] == '-';
+				pos++;
+			}
+			int exp = 0;
+			int expStart = pos;
+			for (; pos<end; pos++) {
+				int digit = buf[pos] - '0';
+				if (digit < 0 || digit > 9 || exp > 10000)
+					break;
+				exp = 10*exp + digit;
+			}
+			if (pos == expStart)
+				hasDigits = false;
+			exponent += negativeExp ? -exp : exp;
+		}
+		
+		// Fast path: exact mantissa and power of ten, a single correctly rounded operation
+		if (hasDigits && pos == end && numDigits <= MAX_DIGITS) {
+			double x = mantissa;
+			if (mantissa == 0)
+				return negative ? -0.0 : 0.0;
+			if (exponent >= 0 && exponent < POWERS_OF_TEN.length)
+				x *= POWERS_OF_TEN[exponent];
+			else if (exponent < 0 && -exponent < POWERS_OF_TEN.length)
+				x /= POWERS_OF_TEN[-exponent];
+			else
+				return Double.parseDouble(new String(buf, start, end - start));
+			return negative ? -x : x;
+		}
+		
+		// Slow path (also throws NumberFormatException for invalid numbers)
+		return Double.parseDouble(new String(buf, start, end - start));
+	}
+	
+	
+	/** Parse the given number */
+	public static double parseDouble(CharSequence s) {
+		
+		int length = s.length();
+		char[] buf = new char[length];
+		for (int i=0; i<length; i++)
+			buf[i] = s.charAt(i);
+		return parseDouble(buf, 0, length);
+	}
+
+}
@@ -27,10 +27,10 @@ package edu.mit.genecircuits;
 
 import java.io.BufferedWriter;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -40,6 +40,14 @@ public class FileExport {
 
 	/** The buffered file writer */
 	BufferedWriter writer_ = null;
+	/** Counts the bytes written to the file or stream */
+	private CountingOutputStream counter_ = null;
+	/** The BGZF compressor (null if not compressed) */
+	private BgzfOutputStream bgzf_ = null;
+	/** The file (null for a stream) */
+	private String filename_ = null;
+	/** The profiling event of the write (null if disabled) */
+	private Object event_ = null;
 	
 	
 	// ============================================================================
@@ -48,17 +56,21 @@ public class FileExport {
 	/** Constructor */
 	public FileExport(String filename, boolean gzip) {
 
+		event_ = CircuitEvents.get().beginWrite();
 		try {
 			if (gzip)
 				filename += ".gz";
+			filename_ = filename;
 			System.out.println("Writing file: " + filename);
 		
 			if (gzip) {
-				FileOutputStream output = new FileOutputStream(filename);
-				writer_ = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(output), "UTF-8"));
-			} else {				
-				FileWriter fstream = new FileWriter(filename);
-				writer_ = new BufferedWriter(fstream);
+				// BGZF: a multi-member gzip file, blocks are compressed in parallel
+				counter_ = new CountingOutputStream(new FileOutputStream(filename));
+				bgzf_ = new BgzfOutputStream(counter_, Settings.gzipLevel_, Settings.gzipBlockSize_, GcUtils.getIoExecutor());
+				writer_ = new BufferedWriter(new OutputStreamWriter(bgzf_, "UTF-8"), 1 << 16);
+			} else {
+				counter_ = new CountingOutputStream(new FileOutputStream(filename));
+				writer_ = new BufferedWriter(new OutputStreamWriter(counter_));
 			}
 			
 		} catch (Exception e) {
@@ -67,6 +79,21 @@ public class FileExport {
 	}
 	
 	
+	/** Constructor, write to the given stream (e.g., an in-memory buffer), gzip compressed (BGZF) or plain UTF-8 */
+	public FileExport(OutputStream stream, boolean gzip) {
+
+		event_ = CircuitEvents.get().beginWrite();
+		try {
+			stream = counter_ = new CountingOutputStream(stream);
+			if (gzip)
+				stream = bgzf_ = new BgzfOutputStream(stream, Settings.gzipLevel_, Settings.gzipBlockSize_, GcUtils.getIoExecutor());
+			writer_ = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"), 1 << 16);
+		} catch (Exception e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
 	/** Constructor for uncompressed file */
 	public FileExport(String filename) {
 		
@@ -96,6 +123,19 @@ public class FileExport {
 	}
 	
 	
+	// ----------------------------------------------------------------------------
+
+	/** Write the chars buf[off, off+len) to the file */
+	public void print(char[] buf, int off, int len) {
+		
+		try {
+			writer_.write(buf, off, len);
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
     // ----------------------------------------------------------------------------
 
 	/** Be polite and close the file writer */
@@ -119,6 +159,43 @@ public class FileExport {
 		} catch (IOException e) {
 			GcMain.error(e);
 		}
+		CircuitEvents.get().endWrite(event_, filename_, getNumBytes(), getCompressionTime());
+		event_ = null;
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** Number of bytes written to the file or stream so far (compressed size for gzip, final once closed) */
+	public long getNumBytes() { return counter_.count_; }
+	/** Time (ns) spent compressing the output so far, summed over the threads (0 if not compressed) */
+	public long getCompressionTime() { return bgzf_ == null ? 0 : bgzf_.getCompressionTime(); }
+	
+	
+	// ============================================================================
+	// COUNTING OUTPUT STREAM
+	
+	/** Counts the bytes written to the underlying stream */
+	private static class CountingOutputStream extends FilterOutputStream {
+		
+		/** Number of bytes written */
+		private volatile long count_ = 0;
+		
+		/** Constructor */
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+		
+		public void write(int b) throws IOException {
+			out.write(b);
+			count_++;
+		}
+		
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count_ += len;
+		}
 	}
-	  
+	
 }
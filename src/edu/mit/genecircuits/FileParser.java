@@ -25,19 +25,25 @@ THE SOFTWARE.
  */
 package edu.mit.genecircuits;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 
 
 /**
  * Parse a tab-separated value file (other separators than tab can also be set).
+ * Lines can be read as String arrays (readLine()), or without allocation through the cursor
+ * API: nextRecord() moves to the next line, whose fields are then accessed with field(i),
+ * intField(i) and doubleField(i) directly in a reusable char buffer. Unused fields are never
+ * converted. The cursor API splits at the literal separator (readLine() uses String.split()).
  * Note: java.util.Scanner offers more sophisticated functions to parse structured text files
  */
 public class FileParser {
@@ -51,6 +57,37 @@ public class FileParser {
 	/** Next line */
 	private String nextLine_ = null;
 	
+	/** Reusable char buffer, the current line is buf_[lineStart_, lineEnd_) */
+	private char[] buf_ = new char[64 * 1024];
+	/** Number of valid chars in buf_ */
+	private int bufLength_ = 0;
+	/** Position in buf_ after the current line and its terminator */
+	private int bufPos_ = 0;
+	/** Start of the current line in buf_ */
+	private int lineStart_ = 0;
+	/** End of the current line in buf_ (excluding the terminator) */
+	private int lineEnd_ = 0;
+	/** Set when the end of the file has been reached */
+	private boolean eof_ = false;
+	
+	/** Number of fields of the current record */
+	private int numFields_ = 0;
+	/** Start of each field of the current record in buf_ */
+	private int[] fieldStart_ = new int[64];
+	/** End of each field of the current record in buf_ */
+	private int[] fieldEnd_ = new int[64];
+	/** Reusable views of the fields */
+	private Field[] fields_ = new Field[64];
+	
+	/** The file (null for a reader) */
+	private String filename_ = null;
+	/** Counts the bytes read from the file (null for a reader) */
+	private CountingInputStream counter_ = null;
+	/** Number of lines read */
+	private long numLines_ = 0;
+	/** The profiling event of the parse (null if disabled) */
+	private Object event_ = null;
+	
 	
 	// ============================================================================
 	// PUBLIC METHODS
@@ -69,17 +106,21 @@ public class FileParser {
 	}
 	
 	
+	/** Constructor, parse the given reader (e.g., an entry of an archive) */
+	public FileParser(Reader reader) {
+
+		event_ = CircuitEvents.get().beginParse();
+		reader_ = new BufferedReader(reader);
+	}
+	
+	
     // ----------------------------------------------------------------------------
 
 	/** Read and return the next line, split using the separator_. Returns null if there is no more line to read. */
 	public String[] readLine() {
 		
-		try {
-			lineCounter_++;
-			nextLine_ = reader_.readLine();
-		} catch (IOException e) {
-			GcMain.error(e);
-		}
+		lineCounter_++;
+		nextLine_ = nextLine() ? new String(buf_, lineStart_, lineEnd_ - lineStart_) : null;
 		
 		if (nextLine_ == null)
 			return null;
@@ -95,23 +136,119 @@ public class FileParser {
 		
 		ArrayList<String[]> data = new ArrayList<String[]>();
 		
-		try {
-			while (true) {
-				nextLine_ = reader_.readLine();
-				if (nextLine_ == null)
-					break;
-				
-				lineCounter_++;
-				data.add(nextLine_.split(separator_));
-			}
-		} catch (IOException e) {
-			GcMain.error(e);
+		while (nextLine()) {
+			nextLine_ = new String(buf_, lineStart_, lineEnd_ - lineStart_);
+			lineCounter_++;
+			data.add(nextLine_.split(separator_));
 		}
 		
 		return data;
 	}
 
 	
+    // ----------------------------------------------------------------------------
+
+	/** 
+	 * Move the cursor to the next line and split it into fields (no allocation). Returns false
+	 * if there is no more line to read. The fields are valid until the next call.
+	 */
+	public boolean nextRecord() {
+		
+		lineCounter_++;
+		numFields_ = 0;
+		if (!nextLine())
+			return false;
+		
+		int sepLength = separator_.length();
+		char sep = separator_.charAt(0);
+		int start = lineStart_;
+		
+		for (int i=lineStart_; i<=lineEnd_ - sepLength; i++) {
+			if (buf_[i] == sep && (sepLength == 1 || isSeparator(i))) {
+				addField(start, i);
+				start = i + sepLength;
+				i = start - 1;
+			}
+		}
+		addField(start, lineEnd_);
+		
+		return true;
+	}
+	
+	
+	/** Number of fields of the current record */
+	public int getNumFields() {
+		
+		return numFields_;
+	}
+	
+	
+	/** View of field i of the current record (valid until the next call to nextRecord()) */
+	public CharSequence field(int i) {
+		
+		checkField(i);
+		Field field = fields_[i];
+		if (field == null)
+			field = fields_[i] = new Field();
+		field.start_ = fieldStart_[i];
+		field.end_ = fieldEnd_[i];
+		return field;
+	}
+	
+	
+	/** Field i of the current record as a String (allocates the String) */
+	public String stringField(int i) {
+		
+		checkField(i);
+		return new String(buf_, fieldStart_[i], fieldEnd_[i] - fieldStart_[i]);
+	}
+	
+	
+	/** Parse field i of the current record as an int */
+	public int intField(int i) {
+		
+		checkField(i);
+		int pos = fieldStart_[i];
+		int end = fieldEnd_[i];
+		if (pos == end)
+			error("Empty field " + i);
+		
+		boolean negative = buf_[pos] == '-';
+		if (negative || buf_[pos] == '+')
+			pos++;
+		if (pos == end)
+			error("Invalid int in field " + i);
+		
+		long x = 0;
+		for (; pos<end; pos++) {
+			int digit = buf_[pos] - '0';
+			if (digit < 0 || digit > 9)
+				error("Invalid int in field " + i + ": " + stringField(i));
+			x = 10*x + digit;
+			if (x > (long) Integer.MAX_VALUE + 1)
+				error("Int out of range in field " + i + ": " + stringField(i));
+		}
+		if (negative)
+			x = -x;
+		if (x > Integer.MAX_VALUE)
+			error("Int out of range in field " + i + ": " + stringField(i));
+		return (int) x;
+	}
+	
+	
+	/** Parse field i of the current record as a double */
+	public double doubleField(int i) {
+		
+		checkField(i);
+		try {
+			return DecimalParser.parseDouble(buf_, fieldStart_[i], fieldEnd_[i]);
+		} catch (NumberFormatException e) {
+			error("Invalid number in field " + i + ": " + stringField(i));
+			return Double.NaN;
+		}
+	}
+	
+	
     // ----------------------------------------------------------------------------
 
 	/** Be polite and close the file reader when you're done */
@@ -122,6 +259,8 @@ public class FileParser {
 		} catch (IOException e) {
 			GcMain.error(e);
 		}
+		CircuitEvents.get().endParse(event_, filename_, getNumBytes(), numLines_);
+		event_ = null;
 	}
 	  
 	
@@ -130,12 +269,8 @@ public class FileParser {
 	/** Skip N lines (useful to skip headers) */
 	public void skipLines(int N) {
 		
-		try {
-			for (int i=0; i<N; i++)
-				reader_.readLine();
-		} catch (IOException e) {
-			GcMain.error(e);
-		}
+		for (int i=0; i<N; i++)
+			nextLine();
 	}
 
 	
@@ -153,20 +288,28 @@ public class FileParser {
 
 	private void openReader(String filename, boolean silent) {
 
+		filename_ = filename;
+		event_ = CircuitEvents.get().beginParse();
 		try {
 			if (!silent)
 				System.out.println("Reading file: " + filename);
 
+			counter_ = new CountingInputStream(new FileInputStream(filename));
 			if (filename.endsWith(".gz")) {
-				InputStream fileStream = new FileInputStream(filename);
-				InputStream gzipStream = new GZIPInputStream(fileStream);
+				InputStream fileStream = new BufferedInputStream(counter_, 1 << 16);
+				// BGZF files are decompressed in parallel, other gzip files are streamed
+				InputStream gzipStream;
+				if (BgzfInputStream.isBgzf(fileStream))
+					gzipStream = new BgzfInputStream(fileStream, GcUtils.getIoExecutor(), Settings.getIoThreads());
+				else
+					gzipStream = new GZIPInputStream(fileStream, 1 << 16);
 				Reader decoder = new InputStreamReader(gzipStream);
 				reader_ = new BufferedReader(decoder);
 			} else {
 				//FileInputStream fstream = new FileInputStream(filename);
 				//DataInputStream in = new DataInputStream(fstream);
 				//reader_ = new BufferedReader(new InputStreamReader(in));
-				reader_ = new BufferedReader(new FileReader(filename));
+				reader_ = new BufferedReader(new InputStreamReader(counter_));
 			}
 		} catch (Exception e) {
 			GcMain.error(e);
@@ -175,6 +318,112 @@ public class FileParser {
 	}
 
 	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Move to the next line (terminated by \n, \r or \r\n, like BufferedReader.readLine()),
+	 * which is then at buf_[lineStart_, lineEnd_). Returns false at the end of the file.
+	 */
+	private boolean nextLine() {
+		
+		int pos = bufPos_;
+		while (true) {
+			// Look for the end of the line in the buffered chars
+			for (; pos<bufLength_; pos++) {
+				char c = buf_[pos];
+				if (c == '\n' || c == '\r') {
+					// \r\n: read the next char before ending the line (the loop then checks c again)
+					if (c == '\r' && pos + 1 == bufLength_ && !eof_) {
+						pos = fill(pos) - 1;
+						continue;
+					}
+					lineStart_ = bufPos_;
+					lineEnd_ = pos;
+					bufPos_ = (c == '\r' && pos + 1 < bufLength_ && buf_[pos+1] == '\n') ? pos + 2 : pos + 1;
+					numLines_++;
+					return true;
+				}
+			}
+			
+			// Last line without terminator
+			if (eof_) {
+				if (bufPos_ == bufLength_)
+					return false;
+				lineStart_ = bufPos_;
+				lineEnd_ = bufLength_;
+				bufPos_ = bufLength_;
+				numLines_++;
+				return true;
+			}
+			pos = fill(pos);
+		}
+	}
+	
+	
+	/** 
+	 * Read more chars: the current partial line is moved to the start of the buffer (which grows
+	 * if the line does not fit). Returns the given scan position relative to the moved line.
+	 */
+	private int fill(int pos) {
+		
+		int offset = bufPos_;
+		int length = bufLength_ - offset;
+		if (length == buf_.length) {
+			char[] buf = new char[2*buf_.length];
+			System.arraycopy(buf_, offset, buf, 0, length);
+			buf_ = buf;
+		} else if (offset > 0) {
+			System.arraycopy(buf_, offset, buf_, 0, length);
+		}
+		bufPos_ = 0;
+		bufLength_ = length;
+		
+		try {
+			int n = reader_.read(buf_, bufLength_, buf_.length - bufLength_);
+			if (n < 0) {
+				eof_ = true;
+			} else {
+				bufLength_ += n;
+			}
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+		return pos - offset;
+	}
+	
+	
+	/** True if the (multi-char) separator starts at position i of buf_ */
+	private boolean isSeparator(int i) {
+		
+		for (int k=0; k<separator_.length(); k++)
+			if (buf_[i+k] != separator_.charAt(k))
+				return false;
+		return true;
+	}
+	
+	
+	/** Add a field to the current record */
+	private void addField(int start, int end) {
+		
+		if (numFields_ == fieldStart_.length) {
+			fieldStart_ = Arrays.copyOf(fieldStart_, 2*numFields_);
+			fieldEnd_ = Arrays.copyOf(fieldEnd_, 2*numFields_);
+			fields_ = Arrays.copyOf(fields_, 2*numFields_);
+		}
+		fieldStart_[numFields_] = start;
+		fieldEnd_[numFields_] = end;
+		numFields_++;
+	}
+	
+	
+	/** Check that the current record has field i */
+	private void checkField(int i) {
+		
+		if (i < 0 || i >= numFields_)
+			error("No field " + i + " (" + numFields_ + " fields)");
+	}
+	
+	
 	// ============================================================================
 	// STATIC METHODS
 
@@ -184,11 +433,8 @@ public class FileParser {
 		FileParser reader = new FileParser(filename);
 		int count = 0;
 		
-		String[] nextLine = reader.readLine();
-		while (nextLine != null) {
+		while (reader.nextLine())
 			count++;
-			nextLine = reader.readLine();  
-		}
 		reader.close();
 
 		return count;
@@ -201,5 +447,64 @@ public class FileParser {
 	public void setSeparator(String separator) { separator_ = separator; }
     
 	public int getLineCounter() { return lineCounter_; }
+	
+	/** Number of bytes read from the file, compressed for .gz files (0 when parsing a reader) */
+	public long getNumBytes() { return counter_ == null ? 0 : counter_.count_; }
+	/** Number of lines read (by any of the read methods) */
+	public long getNumLines() { return numLines_; }
+	
+	
+	// ============================================================================
+	// FIELD
+	
+	/** View of a field of the current record in the char buffer */
+	private class Field implements CharSequence {
+		
+		/** Start in buf_ */
+		private int start_ = 0;
+		/** End in buf_ */
+		private int end_ = 0;
+		
+		public int length() { return end_ - start_; }
+		public char charAt(int index) { return buf_[start_ + index]; }
+		public CharSequence subSequence(int start, int end) { return new String(buf_, start_ + start, end - start); }
+		public String toString() { return new String(buf_, start_, end_ - start_); }
+	}
 		
+	
+	// ============================================================================
+	// COUNTING INPUT STREAM
+	
+	/** Counts the bytes read from the underlying stream */
+	private static class CountingInputStream extends FilterInputStream {
+		
+		/** Number of bytes read (the stream may be read by the decompression threads) */
+		private volatile long count_ = 0;
+		
+		/** Constructor */
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0)
+				count_++;
+			return b;
+		}
+		
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0)
+				count_ += n;
+			return n;
+		}
+		
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count_ += skipped;
+			return skipped;
+		}
+	}
+	
 }
@@ -75,6 +75,13 @@ public class GcOptionParser extends Settings {
 		if (options.has("outdir"))
 			outputDirectory_ = (String) options.valueOf("outdir");
 		
+		if (options.has("threads"))
+			numThreads_ = (Integer) options.valueOf("threads");
+		if (options.has("block"))
+			sampleBlockSize_ = (Integer) options.valueOf("block");
+		if (options.has("simd"))
+			simdKernels_ = true;
+		
 		if (options.has("net"))
 			networkFile_ = (String) options.valueOf("net");
 
@@ -109,6 +116,9 @@ public class GcOptionParser extends Settings {
 		System.out.println("OPTIONS");
 		System.out.println("   --help          Display this usage information");
 		System.out.println("   --set <file>    The configuration file");
+		System.out.println("   --threads <n>   Number of threads (0 = number of available cores)");
+		System.out.println("   --block <n>     Number of samples wired together (1 = one at a time)");
+		System.out.println("   --simd          Use the SIMD kernels in block mode (Vector API)");
 		System.out.println("   --net <file>    The input network file");
 		System.out.println("   --dir           Treat network as directed");
 		System.out.println("   --undir         Treat network as undirected");
@@ -148,6 +158,12 @@ public class GcOptionParser extends Settings {
 
 		// outputDirectory_
 		parser_.accepts("outdir").withRequiredArg();
+		// numThreads_
+		parser_.accepts("threads").withRequiredArg().ofType(Integer.class);
+		// sampleBlockSize_
+		parser_.accepts("block").withRequiredArg().ofType(Integer.class);
+		// simdKernels_
+		parser_.accepts("simd");
 		
 		// networkFile_
 		parser_.accepts("net").withRequiredArg();
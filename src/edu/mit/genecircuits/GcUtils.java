@@ -30,6 +30,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
@@ -43,10 +46,39 @@ import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix2D;
  */
 public class GcUtils {
 
-	/** Scientific format with plenty of digits (no loss in precision) */
-	private static DecimalFormat scientific_ = new DecimalFormat("0.###############E0#####");
-	/** Scientific format with around 10 digits (good for writing doubles to file) */
-	private static DecimalFormat scientific10_ = new DecimalFormat("0.#######E0#");
+	/** Scientific format with plenty of digits (no loss in precision), one instance per thread (DecimalFormat is not thread safe) */
+	private static ThreadLocal<DecimalFormat> scientific_ = new ThreadLocal<DecimalFormat>() {
+		protected DecimalFormat initialValue() { return new DecimalFormat("0.###############E0#####"); }
+	};
+	
+	/** Daemon thread pool shared by all files to compress and decompress BGZF blocks (null if ioThreads is 1) */
+	private static ExecutorService ioExecutor_ = null;
+	/** Set when ioExecutor_ has been initialized */
+	private static boolean ioExecutorInitialized_ = false;
+	
+	// ----------------------------------------------------------------------------
+	
+	/** 
+	 * The thread pool used to compress gzip output files and decompress BGZF input files, created on
+	 * first use with Settings.getIoThreads() threads (null for a single thread)
+	 */
+	public static synchronized ExecutorService getIoExecutor() {
+		
+		if (!ioExecutorInitialized_) {
+			ioExecutorInitialized_ = true;
+			int numThreads = Settings.getIoThreads();
+			if (numThreads > 1) {
+				ioExecutor_ = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "bgzf-io");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+		return ioExecutor_;
+	}
 	
 	// ----------------------------------------------------------------------------
 	
@@ -173,7 +205,7 @@ public class GcUtils {
 	/** Scientific format */
 	static public String toStringScientific(double x) {
 		
-		return scientific_.format(x);
+		return scientific_.get().format(x);
 	}
 
 		
@@ -182,7 +214,7 @@ public class GcUtils {
 	/** Scientific format with limited precision (around 10 digits, good for writing doubles to file) */
 	static public String toStringScientific10(double x) {
 		
-		return scientific10_.format(x);
+		return ScientificFormat.toString(x);
 	}
 
 	
@@ -0,0 +1,216 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * Java Flight Recorder implementation of CircuitEvents (requires Java 11+, loaded through
+ * CircuitEvents.get()). The events are in the "Gene Circuits" category; gene events are
+ * disabled by default as there is one per gene and sample. Record with, e.g.:
+ * java -XX:StartFlightRecording=filename=run.jfr,settings=profile ...
+ */
+public class JfrCircuitEvents extends CircuitEvents {
+
+	/** Types of the events, checked before creating them */
+	private static final EventType SAMPLE = EventType.getEventType(SampleEvent.class);
+	private static final EventType PARSE = EventType.getEventType(ParseEvent.class);
+	private static final EventType GENE = EventType.getEventType(GeneEvent.class);
+	private static final EventType WRITE = EventType.getEventType(WriteEvent.class);
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	@Override
+	public Object beginSample() {
+		
+		return SAMPLE.isEnabled() ? begin(new SampleEvent()) : null;
+	}
+	
+	
+	@Override
+	public void endSample(Object event, String samples, int numTfs, int numElements, int numGenes, long numEdges) {
+		
+		if (event == null)
+			return;
+		SampleEvent e = (SampleEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.samples = samples;
+			e.numTfs = numTfs;
+			e.numElements = numElements;
+			e.numGenes = numGenes;
+			e.numEdges = numEdges;
+			e.commit();
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	@Override
+	public Object beginParse() {
+		
+		return PARSE.isEnabled() ? begin(new ParseEvent()) : null;
+	}
+	
+	
+	@Override
+	public void endParse(Object event, String filename, long numBytes, long numLines) {
+		
+		if (event == null)
+			return;
+		ParseEvent e = (ParseEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.file = filename;
+			e.bytes = numBytes;
+			e.lines = numLines;
+			e.commit();
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	@Override
+	public Object beginGene() {
+		
+		return GENE.isEnabled() ? begin(new GeneEvent()) : null;
+	}
+	
+	
+	@Override
+	public void endGene(Object event, int gene, int tfFanIn, int elementFanIn, int tfsKept) {
+		
+		if (event == null)
+			return;
+		GeneEvent e = (GeneEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.gene = gene;
+			e.tfFanIn = tfFanIn;
+			e.elementFanIn = elementFanIn;
+			e.tfsKept = tfsKept;
+			e.commit();
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	@Override
+	public Object beginWrite() {
+		
+		return WRITE.isEnabled() ? begin(new WriteEvent()) : null;
+	}
+	
+	
+	@Override
+	public void endWrite(Object event, String filename, long numBytes, long compressionTime) {
+		
+		if (event == null)
+			return;
+		WriteEvent e = (WriteEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.file = filename;
+			e.bytes = numBytes;
+			e.compressionTime = compressionTime;
+			e.commit();
+		}
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Start the given event */
+	private static Event begin(Event event) {
+		
+		event.begin();
+		return event;
+	}
+	
+	
+	// ============================================================================
+	// EVENTS
+	
+	@Name("edu.mit.genecircuits.Sample")
+	@Label("Sample Wiring")
+	@Category("Gene Circuits")
+	@Description("Wiring of the circuits of a sample or block of samples")
+	public static class SampleEvent extends Event {
+		@Label("Samples") String samples;
+		@Label("TFs") int numTfs;
+		@Label("Elements") int numElements;
+		@Label("Genes") int numGenes;
+		@Label("Edges") long numEdges;
+	}
+	
+	@Name("edu.mit.genecircuits.FileParse")
+	@Label("File Parse")
+	@Category("Gene Circuits")
+	@Description("Parsing of an input file by FileParser")
+	public static class ParseEvent extends Event {
+		@Label("File") String file;
+		@Label("Bytes") @DataAmount long bytes;
+		@Label("Lines") long lines;
+	}
+	
+	@Name("edu.mit.genecircuits.Gene")
+	@Label("Gene Aggregation")
+	@Category("Gene Circuits")
+	@Description("Selection of the inputs of a gene and their addition to a circuit")
+	@Enabled(false)
+	public static class GeneEvent extends Event {
+		@Label("Gene Index") int gene;
+		@Label("TF Fan-in") int tfFanIn;
+		@Label("Element Fan-in") int elementFanIn;
+		@Label("TFs Kept") int tfsKept;
+	}
+	
+	@Name("edu.mit.genecircuits.FileWrite")
+	@Label("File Write")
+	@Category("Gene Circuits")
+	@Description("Writing of an output file by FileExport")
+	public static class WriteEvent extends Event {
+		@Label("File") String file;
+		@Label("Bytes") @DataAmount long bytes;
+		@Label("Compression Time") @Timespan long compressionTime;
+	}
+	
+}
@@ -26,9 +26,22 @@ THE SOFTWARE.
 
 package edu.mit.genecircuits;
 
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
 
 /**
- * Small class to output progress when running a loop
+ * Small class to output progress when running a loop. Two modes:
+ * 
+ * - Single loop: iteration(i) prints asterisks, estimatedTotalRuntime(i) assumes iterations of equal cost.
+ * - Concurrent: worker threads call completed() for the items (e.g., samples) they are done with,
+ *   which only updates striped counters. A daemon thread prints the items/s, edges/s, utilization
+ *   of each worker and an ETA at most every reportInterval ms, so logging never runs in the workers.
+ *   The ETA is the remaining weight (expected cost of each item, e.g., its number of active
+ *   elements) divided by the weight completed per second so far.
  */
 public class ProgressMonitor {
 	
@@ -40,6 +53,36 @@ public class ProgressMonitor {
 	private long t0_ = 0;
 	/** The string written at each iteration */
 	private String asterisks_ = "*";
+	
+	/** Weight (expected cost) of each item, null for equal weights */
+	private double[] weights_ = null;
+	/** Sum of the weights of the items to do */
+	private double totalWeight_ = 0;
+	/** Number of items done */
+	private LongAdder numDone_ = new LongAdder();
+	/** Weight of the items done */
+	private DoubleAdder weightDone_ = new DoubleAdder();
+	/** Number of edges produced */
+	private LongAdder numEdges_ = new LongAdder();
+	
+	/** Busy time (ns) of each worker, at index STRIDE*worker (padded to avoid false sharing) */
+	private AtomicLongArray busyTime_ = null;
+	/** Max number of workers tracked separately (others share the last slot) */
+	private int maxWorkers_ = 0;
+	/** Number of workers seen so far */
+	private AtomicInteger numWorkers_ = new AtomicInteger();
+	/** Slot of the current thread */
+	private ThreadLocal<Integer> worker_ = new ThreadLocal<Integer>();
+	
+	/** Time between reports (ms), 0 for no periodic reports */
+	private long reportInterval_ = 0;
+	/** The thread printing the reports (null if not started) */
+	private Thread reporter_ = null;
+	/** Start time (ns) of the concurrent mode */
+	private long start_ = 0;
+	
+	/** Distance between the busy time counters of two workers in busyTime_ (one cache line) */
+	private static final int STRIDE = 8;
 
 	
 	// ============================================================================
@@ -70,6 +113,29 @@ public class ProgressMonitor {
 		this(totalIterations);
 		freq_ = freq;
 	}
+	
+	
+	/** 
+	 * Constructor for concurrent progress, call start() then completed() from the workers and done() at the end.
+	 * @param weights Expected cost of each item (0 for items to skip), null for equal weights
+	 */
+	public ProgressMonitor(int totalIterations, double[] weights, int maxWorkers, long reportInterval) {
+		
+		totalIterations_ = totalIterations;
+		weights_ = weights;
+		maxWorkers_ = Math.max(1, maxWorkers);
+		busyTime_ = new AtomicLongArray(STRIDE*maxWorkers_);
+		reportInterval_ = reportInterval;
+		
+		if (weights == null) {
+			totalWeight_ = totalIterations;
+		} else {
+			for (double w : weights)
+				totalWeight_ += w;
+		}
+		t0_ = System.currentTimeMillis();
+		start_ = System.nanoTime();
+	}
 
 	
 	// ----------------------------------------------------------------------------
@@ -84,11 +150,14 @@ public class ProgressMonitor {
 	
 	// ----------------------------------------------------------------------------
 
-	/** Estimated total runtime */
+	/** Estimated total runtime (weighted if completed() is used, otherwise assuming iterations of equal cost) */
 	public void estimatedTotalRuntime(int i) {
 		if (i % freq_ == 0) {
 			long t1 = System.currentTimeMillis();
-			GcMain.println(i + "\tERT: \t" + GcUtils.chronometer(totalIterations_*(t1-t0_)/i));
+			if (numDone_.sum() > 0)
+				GcMain.println(i + "\tERT: \t" + GcUtils.chronometer(t1 - t0_ + (long) (1000*getEta())));
+			else
+				GcMain.println(i + "\tERT: \t" + GcUtils.chronometer(totalIterations_*(t1-t0_)/i));
 		}
 	
 	}
@@ -96,9 +165,133 @@ public class ProgressMonitor {
 	
 	// ----------------------------------------------------------------------------
 
-	/** Print progress */
+	/** Start printing periodic reports (if reportInterval > 0) from a daemon thread */
+	public synchronized void start() {
+		
+		if (reportInterval_ <= 0 || reporter_ != null)
+			return;
+		
+		reporter_ = new Thread("progress-monitor") {
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(reportInterval_);
+						GcMain.println(getStatus());
+					}
+				} catch (InterruptedException e) {
+					// done()
+				}
+			}
+		};
+		reporter_.setDaemon(true);
+		reporter_.start();
+	}
+	
+	
+	/** 
+	 * Items first, ..., end-1 were completed by the current thread (thread safe, no logging)
+	 * @param numEdges Number of edges produced
+	 * @param busyTime Time (ns) the thread spent on the items
+	 */
+	public void completed(int first, int end, long numEdges, long busyTime) {
+		
+		double weight = 0;
+		if (weights_ == null)
+			weight = end - first;
+		else
+			for (int i=first; i<end; i++)
+				weight += weights_[i];
+		
+		numDone_.add(end - first);
+		weightDone_.add(weight);
+		numEdges_.add(numEdges);
+		busyTime_.addAndGet(STRIDE*getWorker(), busyTime);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Progress: items done, items/s, edges/s, utilization of each worker (busy time / elapsed time)
+	 * and estimated remaining time
+	 */
+	public String getStatus() {
+		
+		double elapsed = Math.max(1e-9, (System.nanoTime() - start_) / 1e9);
+		long numDone = numDone_.sum();
+		
+		StringBuilder status = new StringBuilder();
+		status.append(String.format(Locale.US, "- %d/%d (%.1f%%), %.2f/s, %.0f edges/s, workers", 
+				numDone, totalIterations_, 100.0*numDone/Math.max(1, totalIterations_), numDone/elapsed, numEdges_.sum()/elapsed));
+		int numWorkers = Math.min(numWorkers_.get(), maxWorkers_);
+		for (int w=0; w<numWorkers; w++)
+			status.append(String.format(Locale.US, " %.0f%%", 100*busyTime_.get(STRIDE*w)/1e9/elapsed));
+		
+		double eta = getEta();
+		status.append(", ETA ").append(Double.isNaN(eta) ? "?" : GcUtils.chronometer((long) (1000*eta)));
+		return status.toString();
+	}
+	
+	
+	/** Estimated remaining time (s): remaining weight / weight done per second so far (NaN before the first item is done) */
+	public double getEta() {
+		
+		double weightDone = weightDone_.sum();
+		if (weightDone == 0)
+			return Double.NaN;
+		double elapsed = (System.nanoTime() - start_) / 1e9;
+		return Math.max(0, totalWeight_ - weightDone) * elapsed / weightDone;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Print progress (stop the periodic reports and print the final status in concurrent mode) */
 	public void done() {
-		GcMain.print("\n\n");
+		
+		Thread reporter;
+		synchronized (this) {
+			reporter = reporter_;
+			reporter_ = null;
+		}
+		if (reporter != null) {
+			reporter.interrupt();
+			try {
+				reporter.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		if (busyTime_ != null)
+			GcMain.println(getStatus());
+		else
+			GcMain.print("\n\n");
 	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Slot of the current thread in busyTime_ (assigned on first use) */
+	private int getWorker() {
+		
+		Integer worker = worker_.get();
+		if (worker == null) {
+			worker = Math.min(numWorkers_.getAndIncrement(), maxWorkers_ - 1);
+			worker_.set(worker);
+		}
+		return worker;
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	public long getNumDone() { return numDone_.sum(); }
+	public long getNumEdges() { return numEdges_.sum(); }
+	
+	/** Busy time (ns) of the given worker (in order of their first completed item) */
+	public long getBusyTime(int worker) { return busyTime_.get(STRIDE*worker); }
 
 }
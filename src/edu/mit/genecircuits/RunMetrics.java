@@ -0,0 +1,295 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+
+/**
+ * Per-phase metrics of a circuit run: each phase (loading an input file, wiring the circuits of
+ * a sample or a block of samples, writing the output of a sample) records its wall time, rows
+ * (lines parsed, or genes wired), edges (or non-zero values) produced, bytes read/written, and
+ * the bytes allocated by the thread that ran it (not including gzip compression threads).
+ * Phases are recorded from any thread; begin() and end() of a phase must be called by the same
+ * thread. The report is written as JSON and TSV (see write()).
+ */
+public class RunMetrics {
+
+	/** Loading an input file */
+	public static final String LOAD = "load";
+	/** Wiring the circuits of a sample (or a block of samples) */
+	public static final String WIRE = "wire";
+	/** Writing the output of a sample */
+	public static final String WRITE = "write";
+	
+	/** The finished phases */
+	private ArrayList<Phase> phases_ = new ArrayList<Phase>();
+	/** Start of the run (ns) */
+	private long start_ = 0;
+	/** Wall time of the run (ns), set by finish() */
+	private long wallTime_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, the run starts now */
+	public RunMetrics() {
+		
+		start_ = System.nanoTime();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Start a phase of the given type, sample and item (e.g., a file), the last two can be null */
+	public Phase begin(String type, String sample, String item) {
+		
+		return new Phase(type, sample, item);
+	}
+	
+	
+	/** End of the run */
+	public void finish() {
+		
+		wallTime_ = System.nanoTime() - start_;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Print the totals per phase type */
+	public void printInfo() {
+		
+		GcMain.println("\nRun metrics (" + GcUtils.chronometer(wallTime_ / 1000000) + " total):");
+		for (Phase total : getTotals().values()) {
+			double seconds = Math.max(1e-9, total.wallTime_ / 1e9);
+			GcMain.println("- " + total.type_ + ":\t" + total.count_ + " phases, "
+					+ GcUtils.chronometer(total.wallTime_ / 1000000) + " summed over threads"
+					+ String.format(Locale.US, ", %.0f rows/s, %.0f edges/s",
+							total.rows_/seconds, total.edges_/seconds)
+					+ String.format(Locale.US, ", %.1f MB/s, %.1f MB allocated",
+							total.bytes_/seconds/1e6, total.allocated_/1e6));
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * Write the report to prefix + ".json" (run settings, totals per phase type and all phases)
+	 * and prefix + ".tsv" (all phases)
+	 */
+	public synchronized void write(String prefix) {
+		
+		FileExport writer = new FileExport(prefix + ".tsv");
+		writer.println("phase\tsample\titem\tthread\twallMs\trows\tedges\tbytes\tallocatedBytes");
+		for (Phase phase : phases_)
+			writer.println(phase.type_ + "\t" + str(phase.sample_) + "\t" + str(phase.item_)
+					+ "\t" + phase.thread_ + "\t" + ms(phase.wallTime_) + "\t" + phase.rows_
+					+ "\t" + phase.edges_ + "\t" + phase.bytes_ + "\t" + phase.allocated_);
+		writer.close();
+		
+		writer = new FileExport(prefix + ".json");
+		writer.println("{");
+		writer.println("  \"wallMs\": " + ms(wallTime_) + ",");
+		writer.println("  \"settings\": { \"numThreads\": " + Settings.getNumThreads()
+				+ ", \"sampleBlockSize\": " + Settings.sampleBlockSize_
+				+ ", \"simdKernels\": " + Settings.simdKernels_
+				+ ", \"writerThreads\": " + Settings.writerThreads_
+				+ ", \"ioThreads\": " + Settings.getIoThreads()
+				+ ", \"maxTfsPerGene\": " + Settings.maxTfsPerGene_
+				+ ", \"minEdgeWeight\": " + Settings.minEdgeWeight_ + " },");
+		
+		writer.println("  \"totals\": [");
+		int k = 0;
+		LinkedHashMap<String, Phase> totals = getTotals();
+		for (Phase total : totals.values())
+			writer.println("    { \"phase\": " + json(total.type_) + ", \"count\": " + total.count_
+					+ toJson(total) + " }" + (++k < totals.size() ? "," : ""));
+		writer.println("  ],");
+		
+		writer.println("  \"phases\": [");
+		for (int i=0; i<phases_.size(); i++) {
+			Phase phase = phases_.get(i);
+			writer.println("    { \"phase\": " + json(phase.type_)
+					+ ", \"sample\": " + json(phase.sample_) + ", \"item\": " + json(phase.item_)
+					+ ", \"thread\": " + json(phase.thread_)
+					+ toJson(phase) + " }" + (i+1 < phases_.size() ? "," : ""));
+		}
+		writer.println("  ]");
+		writer.println("}");
+		writer.close();
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Add a finished phase */
+	private synchronized void add(Phase phase) {
+		
+		phases_.add(phase);
+	}
+	
+	
+	/** The sums of the phases of each type, in order of first occurrence */
+	private synchronized LinkedHashMap<String, Phase> getTotals() {
+		
+		LinkedHashMap<String, Phase> totals = new LinkedHashMap<String, Phase>();
+		for (Phase phase : phases_) {
+			Phase total = totals.get(phase.type_);
+			if (total == null) {
+				total = new Phase(phase.type_, null, null);
+				totals.put(phase.type_, total);
+			}
+			total.count_++;
+			total.wallTime_ += phase.wallTime_;
+			total.rows_ += phase.rows_;
+			total.edges_ += phase.edges_;
+			total.bytes_ += phase.bytes_;
+			total.allocated_ += Math.max(0, phase.allocated_);
+		}
+		return totals;
+	}
+	
+	
+	/** The counters of a phase as JSON fields */
+	private static String toJson(Phase phase) {
+		
+		return ", \"wallMs\": " + ms(phase.wallTime_) + ", \"rows\": " + phase.rows_
+				+ ", \"edges\": " + phase.edges_ + ", \"bytes\": " + phase.bytes_
+				+ ", \"allocatedBytes\": " + phase.allocated_;
+	}
+	
+	
+	/** Nanoseconds as milliseconds */
+	private static String ms(long ns) {
+		
+		return String.format(Locale.US, "%.3f", ns / 1e6);
+	}
+	
+	
+	/** The string, or "" if it is null */
+	private static String str(String s) {
+		
+		return s == null ? "" : s;
+	}
+	
+	
+	/** The string as a JSON value */
+	private static String json(String s) {
+		
+		if (s == null)
+			return "null";
+		
+		StringBuilder value = new StringBuilder("\"");
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				value.append('\\').append(c);
+			else if (c < 0x20)
+				value.append(String.format("\\u%04x", (int) c));
+			else
+				value.append(c);
+		}
+		return value.append('"').toString();
+	}
+	
+	
+	/** Bytes allocated so far by the current thread (-1 if the JVM doesn't support it) */
+	private static long getAllocatedBytes() {
+		
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()
+					&& sunBean.isThreadAllocatedMemoryEnabled())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+	
+	
+	// ============================================================================
+	// PHASE
+	
+	/** A phase, recorded when end() is called */
+	public class Phase {
+		
+		/** The type (LOAD, WIRE, WRITE) */
+		private String type_ = null;
+		/** The sample(s), or null */
+		private String sample_ = null;
+		/** The item (e.g., a file), or null */
+		private String item_ = null;
+		/** The thread */
+		private String thread_ = null;
+		/** Number of phases (for the totals) */
+		private int count_ = 0;
+		
+		/** Start time (ns) */
+		private long t0_ = 0;
+		/** Bytes allocated by the thread at the start */
+		private long allocated0_ = 0;
+		
+		/** Wall time (ns) */
+		private long wallTime_ = 0;
+		/** Rows parsed (or genes wired) */
+		private long rows_ = 0;
+		/** Edges or non-zero values */
+		private long edges_ = 0;
+		/** Bytes read or written */
+		private long bytes_ = 0;
+		/** Bytes allocated by the thread (-1 if not available) */
+		private long allocated_ = 0;
+		
+		/** Constructor, the phase starts now */
+		private Phase(String type, String sample, String item) {
+			type_ = type;
+			sample_ = sample;
+			item_ = item;
+			thread_ = Thread.currentThread().getName();
+			allocated0_ = getAllocatedBytes();
+			t0_ = System.nanoTime();
+		}
+		
+		/** End of the phase, with its counters */
+		public void end(long rows, long edges, long bytes) {
+			wallTime_ = System.nanoTime() - t0_;
+			allocated_ = allocated0_ == -1 ? -1 : getAllocatedBytes() - allocated0_;
+			rows_ = rows;
+			edges_ = edges;
+			bytes_ = bytes;
+			add(this);
+		}
+	}
+	
+}
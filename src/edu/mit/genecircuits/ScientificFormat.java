@@ -0,0 +1,219 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+
+/**
+ * Fast, thread-safe replacement for DecimalFormat("0.#######E0#"), the scientific format
+ * used to write the weights of the output files (see GcUtils.toStringScientific10()). Note
+ * that DecimalFormat parses this pattern with 8 fraction digits, i.e. 9 significant digits.
+ * The number is written directly into a char buffer and the output is identical to
+ * DecimalFormat (default locale symbols, HALF_EVEN rounding of the shortest decimal
+ * representation, ties resolved with the exact binary value). The 9 digits are obtained
+ * with a single multiplication by a power of ten, which is exact enough unless the value
+ * is very close to a tie; these and subnormal numbers are rounded with BigDecimal.
+ */
+public class ScientificFormat {
+
+	/** Number of significant digits */
+	private static final int NUM_DIGITS = 9;
+	/** 10^(NUM_DIGITS-1), the smallest mantissa */
+	private static final long MIN_MANTISSA = 100000000L;
+	/** 10^NUM_DIGITS */
+	private static final long MAX_MANTISSA = 1000000000L;
+	/** Values of the scaled number whose fraction is closer to 0.5 are rounded with BigDecimal */
+	private static final double TIE_MARGIN = 1e-5;
+	/** Smallest decimal exponent handled without BigDecimal */
+	private static final int MIN_EXPONENT = NUM_DIGITS - 308;
+	/** Rounding to NUM_DIGITS significant digits */
+	private static final MathContext HALF_EVEN = new MathContext(NUM_DIGITS, RoundingMode.HALF_EVEN);
+	/** Rounding up at a tie */
+	private static final MathContext HALF_UP = new MathContext(NUM_DIGITS, RoundingMode.HALF_UP);
+	/** Rounding down at a tie */
+	private static final MathContext HALF_DOWN = new MathContext(NUM_DIGITS, RoundingMode.HALF_DOWN);
+	
+	/** Correctly rounded powers of ten 10^0 to 10^308 */
+	private static final double[] POWERS_OF_TEN = new double[309];
+	
+	/** Symbols of the default locale, as used by DecimalFormat */
+	private static final DecimalFormatSymbols SYMBOLS = new DecimalFormatSymbols();
+	/** Zero digit */
+	private static final char ZERO = SYMBOLS.getZeroDigit();
+	/** Decimal separator */
+	private static final char DECIMAL_SEPARATOR = SYMBOLS.getDecimalSeparator();
+	/** Minus sign */
+	private static final char MINUS = SYMBOLS.getMinusSign();
+	/** Exponent separator ("E") */
+	private static final String EXPONENT_SEPARATOR = SYMBOLS.getExponentSeparator();
+	
+	/** Max number of chars written by format() */
+	public static final int MAX_LENGTH = Math.max(NUM_DIGITS + EXPONENT_SEPARATOR.length() + 6,
+			Math.max(SYMBOLS.getNaN().length(), SYMBOLS.getInfinity().length() + 1));
+	
+	static {
+		for (int k=0; k<POWERS_OF_TEN.length; k++)
+			POWERS_OF_TEN[k] = Double.parseDouble("1e" + k);
+	}
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+
+	/** Write x to buf starting at pos (at most MAX_LENGTH chars), return the end position */
+	public static int format(double x, char[] buf, int pos) {
+		
+		if (Double.isNaN(x))
+			return putString(SYMBOLS.getNaN(), buf, pos);
+		
+		// The sign (also for -0.0, as DecimalFormat)
+		if (Double.doubleToRawLongBits(x) < 0) {
+			buf[pos++] = MINUS;
+			x = -x;
+		}
+		if (Double.isInfinite(x))
+			return putString(SYMBOLS.getInfinity(), buf, pos);
+		if (x == 0) {
+			buf[pos++] = ZERO;
+			pos = putString(EXPONENT_SEPARATOR, buf, pos);
+			buf[pos++] = ZERO;
+			return pos;
+		}
+		
+		// The 9 significant digits and the decimal exponent
+		int exponent = (int) Math.floor(Math.log10(x));
+		long mantissa = -1;
+		if (exponent >= MIN_EXPONENT) {
+			double y = scale(x, NUM_DIGITS - 1 - exponent);
+			if (y < MIN_MANTISSA)
+				y = scale(x, NUM_DIGITS - 1 - (--exponent));
+			else if (y >= MAX_MANTISSA)
+				y = scale(x, NUM_DIGITS - 1 - (++exponent));
+			
+			double floor = Math.floor(y);
+			double fraction = y - floor;
+			if (Math.abs(fraction - 0.5) > TIE_MARGIN)
+				mantissa = (long) floor + (fraction > 0.5 ? 1 : 0);
+		}
+		if (mantissa < 0) {
+			BigDecimal rounded = round(x);
+			mantissa = rounded.unscaledValue().longValue();
+			exponent = rounded.precision() - rounded.scale() - 1;
+			while (mantissa < MIN_MANTISSA)
+				mantissa *= 10;
+		}
+		if (mantissa == MAX_MANTISSA) {
+			mantissa = MIN_MANTISSA;
+			exponent++;
+		}
+		
+		// Drop trailing zeros
+		int numDigits = NUM_DIGITS;
+		while (mantissa % 10 == 0) {
+			mantissa /= 10;
+			numDigits--;
+		}
+		
+		// Mantissa: d[.dddddddd]
+		int end = pos + numDigits + (numDigits > 1 ? 1 : 0);
+		for (int k=end-1; k>pos; k--) {
+			if (k == pos + 1) {
+				buf[k] = DECIMAL_SEPARATOR;
+			} else {
+				buf[k] = (char) (ZERO + mantissa % 10);
+				mantissa /= 10;
+			}
+		}
+		buf[pos] = (char) (ZERO + mantissa);
+		pos = putString(EXPONENT_SEPARATOR, buf, end);
+		
+		// Exponent
+		if (exponent < 0) {
+			buf[pos++] = MINUS;
+			exponent = -exponent;
+		}
+		if (exponent >= 100)
+			buf[pos++] = (char) (ZERO + exponent / 100);
+		if (exponent >= 10)
+			buf[pos++] = (char) (ZERO + exponent / 10 % 10);
+		buf[pos++] = (char) (ZERO + exponent % 10);
+		
+		return pos;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Format x as a String */
+	public static String toString(double x) {
+		
+		char[] buf = new char[MAX_LENGTH];
+		return new String(buf, 0, format(x, buf, 0));
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Round x as DecimalFormat: the shortest decimal representation, HALF_EVEN, ties resolved by the exact value */
+	private static BigDecimal round(double x) {
+		
+		BigDecimal shortest = new BigDecimal(Double.toString(x));
+		BigDecimal up = shortest.round(HALF_UP);
+		BigDecimal down = shortest.round(HALF_DOWN);
+		if (up.compareTo(down) == 0)
+			return up;
+		
+		// Tie: round towards the exact value, or to even if exact
+		int cmp = new BigDecimal(x).compareTo(shortest);
+		if (cmp > 0)
+			return up;
+		else if (cmp < 0)
+			return down;
+		else
+			return shortest.round(HALF_EVEN);
+	}
+	
+	
+	/** x*10^p, rounded once or twice */
+	private static double scale(double x, int p) {
+		
+		return p >= 0 ? x * POWERS_OF_TEN[p] : x / POWERS_OF_TEN[-p];
+	}
+	
+	
+	/** Copy str to buf at pos, return the end position */
+	private static int putString(String str, char[] buf, int pos) {
+		
+		str.getChars(0, str.length(), buf, pos);
+		return pos + str.length();
+	}
+	
+}
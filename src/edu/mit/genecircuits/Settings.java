@@ -71,6 +71,34 @@ public class Settings {
 	static public String outputDirectory_ = "";
 	/** Compress output files (gzip) */
 	static public boolean compressFiles_ = true;
+	/** Number of threads used to build the circuits of different samples in parallel (0 = number of available cores) */
+	static public int numThreads_ = 1;
+	/** Number of samples wired together in one pass over the global network (1 = one sample at a time) */
+	static public int sampleBlockSize_ = 1;
+	/** Use the SIMD kernels (Vector API, requires --add-modules jdk.incubator.vector) in block mode */
+	static public boolean simdKernels_ = false;
+	/** Number of threads used to decompress BGZF input files and compress output files (0 = number of available cores) */
+	static public int ioThreads_ = 0;
+	/** Number of threads writing the output files while the next circuits are built (0 = write in the compute threads) */
+	static public int writerThreads_ = 1;
+	/** Max number of finished circuits waiting to be written (compute threads block when the queue is full) */
+	static public int writeQueueSize_ = 4;
+	/** Seconds between the progress reports while the circuits are wired (0 = only at the end) */
+	static public int progressInterval_ = 10;
+	/** Only rebuild the circuits of the samples whose inputs changed since the last run (see BuildManifest) */
+	static public boolean incremental_ = false;
+	/** Max number of TF inputs kept per gene, those with the largest weights (0 = all) */
+	static public int maxTfsPerGene_ = 0;
+	/** Edges with a weight below this value are dropped while the circuits are built (0 = keep all) */
+	static public double minEdgeWeight_ = 0;
+	/** Write the circuits of all samples to a single archive per output type instead of one file per sample */
+	static public boolean archiveOutput_ = false;
+	/** Write the timing and throughput of each phase to run_report.json/.tsv in the output directories (see RunMetrics) */
+	static public boolean runReport_ = true;
+	/** Compression level of gzip output files (0-9) */
+	static public int gzipLevel_ = 6;
+	/** Uncompressed size of the BGZF blocks of gzip output files (at most 65280 bytes) */
+	static public int gzipBlockSize_ = 65280;
 
 	// ----------------------------------------------------------------------------
 	// CONSTRUCT REGULATORY CIRCUITS
@@ -99,6 +127,10 @@ public class Settings {
 	static public String enhancerExprFile_ = null;
 	/** Transcript expression file prefix */
 	static public String transcriptExprFile_ = null;
+	/** Write a binary cache next to each expression file and load it in later runs (see ExpressionCache) */
+	static public boolean exprCache_ = false;
+	/** Load the global networks from binary edge files (.bin), converted from the text files if needed (see EdgeFile) */
+	static public boolean binaryNetworks_ = false;
 
 	
 	// ----------------------------------------------------------------------------
@@ -277,6 +309,34 @@ public class Settings {
 	}
 	
 
+	// ----------------------------------------------------------------------------
+
+	/** Number of threads to be used (numThreads_, or the number of available cores if numThreads_ is 0) */
+	static public int getNumThreads() {
+		
+		if (numThreads_ < 0)
+			throw new IllegalArgumentException("numThreads must be >= 0");
+		else if (numThreads_ == 0)
+			return Runtime.getRuntime().availableProcessors();
+		else
+			return numThreads_;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Number of threads used to (de)compress BGZF files (ioThreads_, or the number of available cores if ioThreads_ is 0) */
+	static public int getIoThreads() {
+		
+		if (ioThreads_ < 0)
+			throw new IllegalArgumentException("ioThreads must be >= 0");
+		else if (ioThreads_ == 0)
+			return Runtime.getRuntime().availableProcessors();
+		else
+			return ioThreads_;
+	}
+	
+
 	// ============================================================================
 	// PRIVATE METHODS
 
@@ -303,6 +363,8 @@ public class Settings {
 		enhancerTranscriptFile_ = getSetting("enhancerTranscriptFile");
 		enhancerExprFile_ = getSetting("enhancerExprFile");
 		transcriptExprFile_ = getSetting("transcriptExprFile");
+		exprCache_ = getSettingBoolean("exprCache");
+		binaryNetworks_ = getSettingBoolean("binaryNetworks");
 		
 		// INPUT NETWORK
 		networkFile_ = getSetting("networkFile");
@@ -319,6 +381,20 @@ public class Settings {
 		exportPairwiseNodeProperties_ = getSettingBoolean("exportPairwiseNodeProperties");
 		exportNodeProperties_ = getSettingBoolean("exportNodeProperties");
 		compressFiles_ = getSettingBoolean("compressFiles");
+		numThreads_ = getSettingInt("numThreads");
+		sampleBlockSize_ = getSettingInt("sampleBlockSize");
+		simdKernels_ = getSettingBoolean("simdKernels");
+		ioThreads_ = getSettingInt("ioThreads");
+		writerThreads_ = getSettingInt("writerThreads");
+		writeQueueSize_ = getSettingInt("writeQueueSize");
+		progressInterval_ = getSettingInt("progressInterval");
+		incremental_ = getSettingBoolean("incremental");
+		maxTfsPerGene_ = getSettingInt("maxTfsPerGene");
+		minEdgeWeight_ = getSettingDouble("minEdgeWeight");
+		archiveOutput_ = getSettingBoolean("archiveOutput");
+		runReport_ = getSettingBoolean("runReport");
+		gzipLevel_ = getSettingInt("gzipLevel");
+		gzipBlockSize_ = getSettingInt("gzipBlockSize");
 		
 		// BASIC NETWORK PROPERTIES
 		computeDegree_ = getSettingBoolean("computeDegree");
@@ -0,0 +1,261 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded producer/consumer pipeline for output files: compute threads submit write jobs
+ * (e.g., writing a finished circuit), which are run by a pool of writer threads. The queue
+ * holds at most capacity jobs; when it is full, submit() blocks (backpressure), so that the
+ * memory held by pending jobs stays bounded. With zero writer threads, jobs are run directly
+ * by the submitting thread. A job that fails (exception or error) does not stop its writer;
+ * the failure is rethrown by the next submit() or by close(), which also never wait on a
+ * queue that no writer thread is left to drain. Metrics: queue depth, time producers were
+ * stalled on a full queue, and time writers were busy / waiting for jobs (see printInfo()).
+ */
+public class WritePipeline {
+
+	/** Time (ms) between two checks of the writer threads while waiting on a full queue */
+	private static final long PUT_TIMEOUT = 100;
+	/** Job telling a writer thread to stop */
+	private static final Runnable END = new Runnable() {
+		public void run() {}
+	};
+	
+	/** The pending jobs (null if there are no writer threads) */
+	private BlockingQueue<Runnable> queue_ = null;
+	/** The writer threads */
+	private Thread[] writers_ = null;
+	/** The first exception or error thrown by a job */
+	private volatile Throwable error_ = null;
+	/** Set when closed */
+	private boolean closed_ = false;
+	
+	/** Number of submitted jobs */
+	private AtomicLong numJobs_ = new AtomicLong();
+	/** Sum of the queue depths seen by submit() (to compute the mean) */
+	private AtomicLong sumDepth_ = new AtomicLong();
+	/** Max queue depth seen by submit() */
+	private AtomicLong maxDepth_ = new AtomicLong();
+	/** Time (ns) producers were blocked on a full queue */
+	private AtomicLong stallTime_ = new AtomicLong();
+	/** Time (ns) writer threads spent running jobs */
+	private AtomicLong busyTime_ = new AtomicLong();
+	/** Time (ns) writer threads spent waiting for jobs */
+	private AtomicLong idleTime_ = new AtomicLong();
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, start numWriters threads (0 = run the jobs in the submitting thread) with a queue of the given capacity */
+	public WritePipeline(int numWriters, int capacity) {
+		
+		if (numWriters < 0)
+			throw new IllegalArgumentException("The number of writer threads must be >= 0");
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of the write queue must be >= 1");
+		
+		writers_ = new Thread[numWriters];
+		if (numWriters == 0)
+			return;
+		
+		queue_ = new ArrayBlockingQueue<Runnable>(capacity);
+		for (int i=0; i<numWriters; i++) {
+			writers_[i] = new Thread(new Runnable() {
+				public void run() {
+					runJobs();
+				}
+			}, "writer-" + i);
+			writers_[i].start();
+		}
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Submit a job, block while the queue is full. Rethrows the exception of a failed job (if any) */
+	public void submit(Runnable job) {
+		
+		checkError();
+		if (closed_)
+			throw new IllegalStateException("Write pipeline is closed");
+		numJobs_.incrementAndGet();
+		
+		if (queue_ == null) {
+			long t0 = System.nanoTime();
+			job.run();
+			busyTime_.addAndGet(System.nanoTime() - t0);
+			return;
+		}
+		
+		if (!queue_.offer(job)) {
+			// Backpressure: wait for a writer
+			long t0 = System.nanoTime();
+			boolean queued = put(job);
+			stallTime_.addAndGet(System.nanoTime() - t0);
+			if (!queued) {
+				checkError();
+				throw new IllegalStateException("Write pipeline: all writer threads have stopped");
+			}
+		}
+		
+		int depth = queue_.size();
+		sumDepth_.addAndGet(depth);
+		long max = maxDepth_.get();
+		while (depth > max && !maxDepth_.compareAndSet(max, depth))
+			max = maxDepth_.get();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Wait until all jobs are done and stop the writer threads. Rethrows the exception of a failed job (if any) */
+	public void close() {
+		
+		if (closed_)
+			return;
+		closed_ = true;
+		
+		try {
+			// Writers that stopped early don't need (and can't take) their END job
+			for (int i=0; i<writers_.length; i++)
+				if (!put(END))
+					break;
+			for (Thread writer : writers_)
+				writer.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		checkError();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Print the metrics */
+	public void printInfo() {
+		
+		long numJobs = numJobs_.get();
+		GcMain.println("Write pipeline: " + numJobs + " jobs, " + writers_.length + " writer threads");
+		if (queue_ != null) {
+			double meanDepth = numJobs == 0 ? 0 : sumDepth_.get() / (double) numJobs;
+			GcMain.println("- Queue depth: max " + maxDepth_.get() + ", mean " + String.format("%.1f", meanDepth) + " (capacity " + (queue_.size() + queue_.remainingCapacity()) + ")");
+			GcMain.println("- Producers stalled on full queue: " + GcUtils.chronometer(getStallTime() / 1000000));
+			GcMain.println("- Writers idle: " + GcUtils.chronometer(getIdleTime() / 1000000));
+			GcMain.println("- Writers busy: " + GcUtils.chronometer(getBusyTime() / 1000000));
+		} else {
+			GcMain.println("- Writing in compute threads: " + GcUtils.chronometer(getBusyTime() / 1000000));
+		}
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Writer thread: run jobs until END */
+	private void runJobs() {
+		
+		while (true) {
+			Runnable job;
+			long t0 = System.nanoTime();
+			try {
+				job = queue_.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			long t1 = System.nanoTime();
+			idleTime_.addAndGet(t1 - t0);
+			if (job == END)
+				return;
+			
+			// After a failure, the remaining jobs are dropped (but taken, so that producers don't block)
+			if (error_ == null) {
+				try {
+					job.run();
+				} catch (Throwable e) {
+					// Errors too, a dead writer would leave the queue undrained
+					if (error_ == null)
+						error_ = e;
+				}
+			}
+			busyTime_.addAndGet(System.nanoTime() - t1);
+		}
+	}
+	
+	
+	/** Put the job in the queue, waiting while it is full. Return false if no writer thread is alive */
+	private boolean put(Runnable job) {
+		
+		try {
+			while (!queue_.offer(job, PUT_TIMEOUT, TimeUnit.MILLISECONDS))
+				if (!isWriterAlive())
+					return false;
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		return true;
+	}
+	
+	
+	/** True if at least one writer thread is running */
+	private boolean isWriterAlive() {
+		
+		for (Thread writer : writers_)
+			if (writer.isAlive())
+				return true;
+		return false;
+	}
+	
+	
+	/** Rethrow the exception of a failed job */
+	private void checkError() {
+		
+		if (error_ != null)
+			throw new RuntimeException("Write job failed", error_);
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+	
+	/** Number of submitted jobs */
+	public long getNumJobs() { return numJobs_.get(); }
+	/** Max queue depth seen by submit() */
+	public long getMaxDepth() { return maxDepth_.get(); }
+	/** Total time (ns) producers were blocked on a full queue */
+	public long getStallTime() { return stallTime_.get(); }
+	/** Total time (ns) writer threads spent running jobs */
+	public long getBusyTime() { return busyTime_.get(); }
+	/** Total time (ns) writer threads spent waiting for jobs */
+	public long getIdleTime() { return idleTime_.get(); }
+	
+}
@@ -0,0 +1,78 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import edu.mit.genecircuits.Settings;
+import edu.mit.genecircuits.net.SyntheticInputs;
+
+
+/**
+ * Synthetic tf---enhancer---transcript inputs for the benchmarks (see SyntheticInputs), written
+ * once per size to a temporary directory. Sizes: "small" (a few seconds of setup) and "large"
+ * (closer to the real enhancer networks). Uses the seed of the default settings.
+ */
+public class BenchData {
+
+	/** Number of tfs, enhancers, transcripts, genes, samples for each size */
+	private static final int[][] SIZES = { { 100, 20000, 10000, 4000, 8 }, { 600, 200000, 60000, 20000, 16 } };
+	
+	/** Directory of the data of each size */
+	private static String[] dirs_ = new String[SIZES.length];
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Write the data of the given size ("small" or "large") if not done yet, set the Settings to use it, return the directory */
+	public static synchronized String setup(String size) throws IOException {
+		
+		int s = size.equals("large") ? 1 : 0;
+		
+		Settings.loadSettings();
+		Settings.suffix_ = "";
+		Settings.tfEnhancerFile_ = "tf---enhancer";
+		Settings.enhancerTranscriptFile_ = "enhancer---transcript";
+		Settings.enhancerExprFile_ = "enhancer_expr";
+		Settings.transcriptExprFile_ = "transcript_expr";
+		
+		if (dirs_[s] == null) {
+			Settings.circuitDir_ = Files.createTempDirectory("gc-bench").toString();
+			SyntheticInputs inputs = new SyntheticInputs();
+			inputs.setNumNodes(SIZES[s][0], 0, SIZES[s][1], SIZES[s][2], SIZES[s][3]);
+			inputs.setNumSamples(SIZES[s][4]);
+			inputs.setTfsPerElement(15);
+			inputs.writeEnhancerInputs();
+			dirs_[s] = Settings.circuitDir_;
+		}
+		Settings.circuitDir_ = dirs_[s];
+		Settings.circuitOutDir_ = dirs_[s] + "/out";
+		return dirs_[s];
+	}
+	
+}
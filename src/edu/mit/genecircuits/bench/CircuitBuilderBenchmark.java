@@ -0,0 +1,111 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.net.Circuit;
+import edu.mit.genecircuits.net.CircuitBuilder;
+
+
+/**
+ * CircuitBuilder.buildTfEnhancerGene(i) on the synthetic networks of BenchData: wiring of the
+ * tf---enhancer---gene circuit of one sample (network and expression are loaded in the setup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircuitBuilderBenchmark {
+
+	/** Size of the synthetic data ("small" or "large") */
+	@Param({ "small", "large" })
+	public String size;
+	
+	/** The builder, with network and expression loaded */
+	private Builder builder_ = null;
+	/** The next sample */
+	private int sample_ = 0;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() throws Exception {
+		
+		BenchData.setup(size);
+		builder_ = new Builder();
+		builder_.load();
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+	
+	@Benchmark
+	public Circuit buildTfEnhancerGene() {
+		
+		sample_ = (sample_ + 1) % builder_.getSamples().length;
+		return builder_.build(sample_);
+	}
+	
+	
+	// ============================================================================
+	// BUILDER
+	
+	/** Exposes the loading and wiring steps of CircuitBuilder */
+	public static class Builder extends CircuitBuilder {
+		
+		/** Load expression and network */
+		public void load() {
+			loadEnhancerExpr();
+			loadTranscriptExpr();
+			loadEnhancerNet();
+		}
+		
+		/** Wire the circuit of sample i */
+		public Circuit build(int i) {
+			buildTfEnhancerGene(i);
+			return getCircuit();
+		}
+	}
+	
+}
@@ -0,0 +1,98 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.FileExport;
+import edu.mit.genecircuits.net.Circuit;
+
+
+/**
+ * Circuit.writeEnhancerGene() of one sample of BenchData to a discarding stream, plain text
+ * (formatting only) or BGZF compressed (formatting and deflate).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircuitWriteBenchmark {
+
+	/** Size of the synthetic data ("small" or "large") */
+	@Param({ "small", "large" })
+	public String size;
+	/** Compress the output */
+	@Param({ "false", "true" })
+	public boolean gzip;
+	
+	/** The circuit */
+	private Circuit circuit_ = null;
+	/** Number of bytes written */
+	private long numBytes_ = 0;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() throws Exception {
+		
+		BenchData.setup(size);
+		CircuitBuilderBenchmark.Builder builder = new CircuitBuilderBenchmark.Builder();
+		builder.load();
+		circuit_ = builder.build(0);
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+	
+	@Benchmark
+	public long writeEnhancerGene() {
+		
+		circuit_.writeEnhancerGene(new FileExport(new OutputStream() {
+			public void write(int b) { numBytes_++; }
+			public void write(byte[] b, int off, int len) { numBytes_ += len; }
+		}, gzip));
+		return numBytes_;
+	}
+	
+}
@@ -0,0 +1,119 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.DecimalParser;
+
+
+/**
+ * DecimalParser vs. Double.parseDouble on the number formats of the input files
+ * (expression values, motif scores, distance weights). Both parse the same char buffer,
+ * the JDK version has to create a String for each field as FileParser did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalParserBenchmark {
+
+	/** Number format: expression ("12.5", "0"), score ("0.8234"), or scientific ("3.2E-4") */
+	@Param({ "expression", "score", "scientific" })
+	public String format;
+	
+	/** Number of values per invocation */
+	private static final int N = 1024;
+	
+	/** The values, concatenated */
+	private char[] buf_ = null;
+	/** Start of each value in buf_ (length N+1) */
+	private int[] start_ = null;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() {
+		
+		Random random = new Random(42);
+		StringBuilder values = new StringBuilder();
+		start_ = new int[N + 1];
+		
+		for (int i=0; i<N; i++) {
+			start_[i] = values.length();
+			if (format.equals("expression"))
+				values.append(random.nextInt(3) == 0 ? "0" : String.format(Locale.US, "%.2f", 1000*random.nextDouble()));
+			else if (format.equals("score"))
+				values.append(String.format(Locale.US, "%.4f", random.nextDouble()));
+			else
+				values.append(String.format(Locale.US, "%.6E", random.nextDouble() * Math.pow(10, random.nextInt(10) - 8)));
+		}
+		start_[N] = values.length();
+		buf_ = values.toString().toCharArray();
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+
+	@Benchmark
+	public double jdk() {
+		
+		double sum = 0;
+		for (int i=0; i<N; i++)
+			sum += Double.parseDouble(new String(buf_, start_[i], start_[i+1] - start_[i]));
+		return sum;
+	}
+	
+	
+	@Benchmark
+	public double decimalParser() {
+		
+		double sum = 0;
+		for (int i=0; i<N; i++)
+			sum += DecimalParser.parseDouble(buf_, start_[i], start_[i+1]);
+		return sum;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.FileParser;
+
+
+/**
+ * FileParser.readLine() (one String per line and per field) vs. the nextRecord() cursor on the
+ * enhancer---transcript network of BenchData. Each invocation parses the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileParserBenchmark {
+
+	/** Size of the synthetic data ("small" or "large") */
+	@Param({ "small" })
+	public String size;
+	
+	/** The file */
+	private String filename_ = null;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() throws Exception {
+		
+		filename_ = BenchData.setup(size) + "/enhancer---transcript.txt";
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+	
+	@Benchmark
+	public double readLine() {
+		
+		FileParser parser = new FileParser(filename_, true);
+		parser.readLine();
+		
+		double sum = 0;
+		String[] nextLine = parser.readLine();
+		while (nextLine != null) {
+			sum += Double.parseDouble(nextLine[3]);
+			nextLine = parser.readLine();
+		}
+		parser.close();
+		return sum;
+	}
+	
+	
+	@Benchmark
+	public double nextRecord() {
+		
+		FileParser parser = new FileParser(filename_, true);
+		parser.skipLines(1);
+		
+		double sum = 0;
+		while (parser.nextRecord())
+			sum += parser.doubleField(3);
+		parser.close();
+		return sum;
+	}
+	
+}
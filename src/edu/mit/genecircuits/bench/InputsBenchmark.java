@@ -0,0 +1,124 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.net.Inputs;
+import edu.mit.genecircuits.net.Node;
+import edu.mit.genecircuits.net.Tf;
+
+
+/**
+ * Inputs.add() and Inputs.multiply(), the per-edge operations of the original (HashMap based)
+ * circuit wiring. Each invocation adds the tf inputs of one element (with repeated tfs) and
+ * scales them by the element weight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputsBenchmark {
+
+	/** Number of tf links added per invocation */
+	@Param({ "16", "256" })
+	public int numLinks;
+	
+	/** Number of distinct tfs */
+	private static final int NUM_TFS = 600;
+	
+	/** The tfs of each link */
+	private Node[] nodes_ = null;
+	/** The weight of each link */
+	private double[] weights_ = null;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() {
+		
+		Random random = new Random(42);
+		Node[] tfs = new Node[NUM_TFS];
+		for (int i=0; i<NUM_TFS; i++)
+			tfs[i] = new Tf("tf" + i);
+		
+		nodes_ = new Node[numLinks];
+		weights_ = new double[numLinks];
+		for (int i=0; i<numLinks; i++) {
+			nodes_[i] = tfs[random.nextInt(NUM_TFS)];
+			weights_[i] = random.nextDouble();
+		}
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+	
+	@Benchmark
+	public Inputs add() {
+		
+		Inputs inputs = new Inputs(numLinks);
+		for (int i=0; i<numLinks; i++)
+			inputs.add(nodes_[i], weights_[i]);
+		return inputs;
+	}
+	
+	
+	@Benchmark
+	public Inputs addMultiply() {
+		
+		Inputs inputs = add();
+		inputs.multiply(0.5);
+		return inputs;
+	}
+	
+	
+	@Benchmark
+	public Inputs addInputs() {
+		
+		Inputs inputs = new Inputs(numLinks);
+		inputs.add(add());
+		return inputs;
+	}
+	
+}
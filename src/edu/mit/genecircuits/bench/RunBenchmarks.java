@@ -0,0 +1,63 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.openjdk.jmh.Main;
+
+
+/**
+ * Runs the benchmarks and writes the results as JSON (bench_results.json in the working
+ * directory unless -rff is given). Arguments are passed to JMH, e.g. a regex selecting the
+ * benchmarks, "-p size=small", or "-wi 1 -i 3" for a quick run. See README.md.
+ */
+public class RunBenchmarks {
+
+	/** Default result file */
+	public static final String RESULT_FILE = "bench_results.json";
+	
+	
+	// ============================================================================
+	// STATIC METHODS
+	
+	/** Main */
+	public static void main(String[] args) throws Exception {
+		
+		ArrayList<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+		if (!jmhArgs.contains("-rf")) {
+			jmhArgs.add("-rf");
+			jmhArgs.add("json");
+		}
+		if (!jmhArgs.contains("-rff")) {
+			jmhArgs.add("-rff");
+			jmhArgs.add(RESULT_FILE);
+		}
+		Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+	}
+	
+}
@@ -0,0 +1,117 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.bench;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.mit.genecircuits.GcUtils;
+import edu.mit.genecircuits.ScientificFormat;
+
+
+/**
+ * ScientificFormat vs. DecimalFormat("0.#######E0#") on circuit weights (products of
+ * confidences and square roots of expression values). DecimalFormat creates a String for
+ * each weight, ScientificFormat writes into a reused char buffer. GcUtils.toStringScientific10()
+ * is the String version used outside of the circuit writers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScientificFormatBenchmark {
+
+	/** Number of values per invocation */
+	private static final int N = 1024;
+	
+	/** The weights */
+	private double[] values_ = null;
+	/** The reference format */
+	private DecimalFormat decimalFormat_ = new DecimalFormat("0.#######E0#");
+	/** Output buffer of ScientificFormat */
+	private char[] buf_ = new char[N * ScientificFormat.MAX_LENGTH];
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@Setup
+	public void setup() {
+		
+		Random random = new Random(42);
+		values_ = new double[N];
+		for (int i=0; i<N; i++)
+			values_[i] = (random.nextDouble() + 0.1) * Math.sqrt(1000 * random.nextDouble() * random.nextDouble());
+	}
+	
+	
+	// ============================================================================
+	// BENCHMARKS
+
+	@Benchmark
+	public int decimalFormat() {
+		
+		int length = 0;
+		for (int i=0; i<N; i++)
+			length += decimalFormat_.format(values_[i]).length();
+		return length;
+	}
+	
+	
+	@Benchmark
+	public int scientificFormat() {
+		
+		int pos = 0;
+		for (int i=0; i<N; i++)
+			pos = ScientificFormat.format(values_[i], buf_, pos);
+		return pos;
+	}
+	
+	
+	@Benchmark
+	public int toStringScientific10() {
+		
+		int length = 0;
+		for (int i=0; i<N; i++)
+			length += GcUtils.toStringScientific10(values_[i]).length();
+		return length;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+
+/**
+ * Helpers to write and memory-map the binary files of the package (ExpressionCache, EdgeFile).
+ * All files are little endian, strings are stored as their length in bytes followed by UTF-8.
+ */
+public class BinaryFiles {
+
+	/** Max number of bytes mapped at once (a mapped buffer is limited to 2 GB) */
+	public static final int MAX_MAP = 1 << 30;
+	/** Strings are stored in UTF-8 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+
+	/** Map a region of the file (read only, little endian) */
+	public static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Copy the ints starting at the given position, return the position after them */
+	public static long getInts(FileChannel channel, long position, int[] x) throws IOException {
+		
+		for (int i=0; i<x.length; ) {
+			int n = Math.min(x.length - i, MAX_MAP/4);
+			map(channel, position, 4L*n).asIntBuffer().get(x, i, n);
+			position += 4L*n;
+			i += n;
+		}
+		return position;
+	}
+	
+	
+	/** Copy the doubles starting at the given position, return the position after them */
+	public static long getDoubles(FileChannel channel, long position, double[] x) throws IOException {
+		
+		for (int i=0; i<x.length; ) {
+			int n = Math.min(x.length - i, MAX_MAP/8);
+			map(channel, position, 8L*n).asDoubleBuffer().get(x, i, n);
+			position += 8L*n;
+			i += n;
+		}
+		return position;
+	}
+	
+	
+	/** Read n strings */
+	public static String[] getStrings(ByteBuffer buffer, int n) {
+		
+		String[] strings = new String[n];
+		byte[] bytes = new byte[256];
+		for (int i=0; i<n; i++) {
+			int length = buffer.getInt();
+			if (length > bytes.length)
+				bytes = new byte[Math.max(length, 2*bytes.length)];
+			buffer.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, UTF8);
+		}
+		return strings;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Allocate a write buffer (little endian) */
+	public static ByteBuffer allocate() {
+		
+		return ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	
+	/** Write strings */
+	public static void putStrings(FileChannel channel, ByteBuffer buffer, String[] strings) throws IOException {
+		
+		for (String s : strings) {
+			byte[] bytes = s.getBytes(UTF8);
+			putInt(channel, buffer, bytes.length);
+			for (int i=0; i<bytes.length; ) {
+				if (!buffer.hasRemaining())
+					flush(channel, buffer);
+				int n = Math.min(bytes.length - i, buffer.remaining());
+				buffer.put(bytes, i, n);
+				i += n;
+			}
+		}
+	}
+	
+	
+	/** Write an int, flush the buffer if it is full */
+	public static void putInt(FileChannel channel, ByteBuffer buffer, int x) throws IOException {
+		
+		if (buffer.remaining() < 4)
+			flush(channel, buffer);
+		buffer.putInt(x);
+	}
+	
+	
+	/** Write a long, flush the buffer if it is full */
+	public static void putLong(FileChannel channel, ByteBuffer buffer, long x) throws IOException {
+		
+		if (buffer.remaining() < 8)
+			flush(channel, buffer);
+		buffer.putLong(x);
+	}
+	
+	
+	/** Write a double, flush the buffer if it is full */
+	public static void putDouble(FileChannel channel, ByteBuffer buffer, double x) throws IOException {
+		
+		if (buffer.remaining() < 8)
+			flush(channel, buffer);
+		buffer.putDouble(x);
+	}
+	
+	
+	/** Write the content of the buffer to the channel and clear it */
+	public static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Create a new temporary file in the directory of the given file. The name is unique, so
+	 * that several processes writing the same file do not write to the same temporary file.
+	 */
+	public static File createTempFile(File file) throws IOException {
+		
+		File dir = file.getAbsoluteFile().getParentFile();
+		return File.createTempFile(file.getName() + ".", ".tmp", dir);
+	}
+	
+	
+	/** Replace the file by the (complete) temporary file in one atomic rename */
+	public static void replace(File tmp, File file) throws IOException {
+		
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Close the file, ignore errors */
+	public static void close(RandomAccessFile file) {
+		
+		try {
+			if (file != null)
+				file.close();
+		} catch (IOException e) {
+		}
+	}
+	
+}
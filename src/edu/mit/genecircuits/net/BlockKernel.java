@@ -0,0 +1,146 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Kernels of the BlockMaxTimesEngine: the element---transcript weights of a link for all
+ * samples of a block, and the (scaled) max-merge of these weights into the accumulators.
+ * Inactive samples have weight NEGATIVE_INFINITY (the max-times identity).
+ * 
+ * The scalar kernels are always available, the SIMD kernels (VectorBlockKernel) require the
+ * jdk.incubator.vector module (--add-modules jdk.incubator.vector) and give identical results.
+ * VectorBlockKernel is in the separate source root src-vector, compiled only if the module is
+ * available, so that the rest of the code builds on any JDK.
+ */
+abstract public class BlockKernel {
+
+	/** Weight of links that are not active in a sample (max-times identity) */
+	public static final double INACTIVE = Double.NEGATIVE_INFINITY;
+	
+	/** Name of the SIMD implementation (loaded by reflection, as the module or the class may be missing) */
+	private static final String VECTOR_KERNEL = "edu.mit.genecircuits.net.VectorBlockKernel";
+	
+	/** The SIMD kernel if available, null otherwise (loaded once) */
+	private static BlockKernel vectorKernel_ = null;
+	/** Set after the first attempt to load the SIMD kernel */
+	private static boolean vectorKernelLoaded_ = false;
+	
+
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** 
+	 * Set y[s] = distanceWeight * sqrt(xe[s] * xt[s]) (or distanceWeight * xe[s] if transcriptExpr is null)
+	 * for s = 0, ..., n-1, or INACTIVE if the element or transcript is not expressed in sample s.
+	 * Return true if the link is active in at least one sample.
+	 */
+	abstract public boolean linkWeights(double[] elementExpr, int eOffset, double[] transcriptExpr, int tOffset, 
+			double distanceWeight, double[] y, int n);
+	
+	/** acc[offset + s] = max(acc[offset + s], y[s]) for s = 0, ..., n-1 */
+	abstract public void maxMerge(double[] y, double[] acc, int offset, int n);
+	
+	/** acc[offset + s] = max(acc[offset + s], c * y[s]) for s = 0, ..., n-1 */
+	abstract public void scaledMaxMerge(double c, double[] y, double[] acc, int offset, int n);
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Get the SIMD kernel if requested and available, the scalar kernel otherwise */
+	public static BlockKernel getKernel(boolean simd) {
+		
+		if (simd) {
+			BlockKernel kernel = getVectorKernel();
+			if (kernel != null)
+				return kernel;
+		}
+		return new ScalarBlockKernel();
+	}
+	
+	
+	/** Get the SIMD kernel, null if the jdk.incubator.vector module is not available */
+	public static synchronized BlockKernel getVectorKernel() {
+		
+		if (!vectorKernelLoaded_) {
+			vectorKernelLoaded_ = true;
+			try {
+				vectorKernel_ = (BlockKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+			} catch (Throwable e) {
+				// ClassNotFoundException or NoClassDefFoundError / LinkageError without the module
+				GcMain.println("SIMD kernels not available (requires --add-modules jdk.incubator.vector), using scalar kernels");
+				vectorKernel_ = null;
+			}
+		}
+		return vectorKernel_;
+	}
+
+	
+	// ============================================================================
+	// PROTECTED METHODS
+
+	/** Scalar linkWeights() for samples from, ..., to-1 (used by the kernels for the tail of the block) */
+	protected static boolean scalarLinkWeights(double[] elementExpr, int eOffset, double[] transcriptExpr, int tOffset, 
+			double distanceWeight, double[] y, int from, int to) {
+		
+		boolean active = false;
+		for (int s=from; s<to; s++) {
+			double xe = elementExpr[eOffset + s];
+			double xt = transcriptExpr == null ? 1 : transcriptExpr[tOffset + s];
+			if (xe != 0 && xt != 0) {
+				double exprWeight = transcriptExpr == null ? xe : Math.sqrt(xe * xt);
+				y[s] = distanceWeight * exprWeight;
+				active = true;
+			} else {
+				y[s] = INACTIVE;
+			}
+		}
+		return active;
+	}
+	
+	
+	/** Scalar maxMerge() for samples from, ..., to-1 */
+	protected static void scalarMaxMerge(double[] y, double[] acc, int offset, int from, int to) {
+		
+		for (int s=from; s<to; s++)
+			if (y[s] > acc[offset + s])
+				acc[offset + s] = y[s];
+	}
+
+	
+	/** Scalar scaledMaxMerge() for samples from, ..., to-1 */
+	protected static void scalarScaledMaxMerge(double c, double[] y, double[] acc, int offset, int from, int to) {
+		
+		for (int s=from; s<to; s++) {
+			double x = c * y[s];
+			if (x > acc[offset + s])
+				acc[offset + s] = x;
+		}
+	}
+
+}
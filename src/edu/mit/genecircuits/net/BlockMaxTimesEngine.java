@@ -0,0 +1,246 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.util.Arrays;
+
+
+/**
+ * Same propagation as MaxTimesEngine, but for a block of B samples at once: the global
+ * network is walked once per block instead of once per sample, and for every link the
+ * weights are evaluated for all samples of the block in a tight loop over contiguous
+ * arrays. Expression values are given node-major: expr[node*B + s] is the expression of
+ * the node in sample s of the block (0 if the node is not active in that sample).
+ * 
+ * An instance is not thread safe, use one per thread.
+ */
+public class BlockMaxTimesEngine {
+
+	/** Weight of links that are not active in a sample (max-times identity) */
+	private static final double INACTIVE = BlockKernel.INACTIVE;
+	
+	/** The kernels evaluating and merging the weights of a link for all samples of the block */
+	private BlockKernel kernel_ = null;
+	
+	/** element x tf (motif confidence) */
+	private CsrMatrix elementTf_ = null;
+	/** transcript x element */
+	private CsrMatrix transcriptElement_ = null;
+	/** gene x transcript */
+	private CsrMatrix geneTranscript_ = null;
+	
+	/** Number of samples per block */
+	private int B_ = 0;
+	
+	/** element---transcript weights of the current link for each sample */
+	private double[] y_ = null;
+	/** tf accumulators of the current gene, tf-major (tf*B + s) */
+	private double[] tfAcc_ = null;
+	/** The tfs of the current gene */
+	private int[] tfs_ = null;
+	/** Number of tfs of the current gene */
+	private int numTfs_ = 0;
+	/** Stamp of the tfs in tfAcc_ (current gene if equal to stamp_) */
+	private int[] tfStamp_ = null;
+	
+	/** element accumulators of the current gene, slot-major (slot*B + s) */
+	private double[] elementAcc_ = null;
+	/** The elements of the current gene, indexed by slot */
+	private int[] elements_ = null;
+	/** Number of elements of the current gene */
+	private int numElements_ = 0;
+	/** Slot of the elements in elementAcc_ (valid if elementStamp_ equals stamp_) */
+	private int[] elementSlot_ = null;
+	/** Stamp of the elements */
+	private int[] elementStamp_ = null;
+	/** Current stamp (incremented for each gene) */
+	private int stamp_ = 0;
+	
+	/** Reusable accumulators passed to the sink */
+	private IntInputs tfInputs_ = null;
+	/** Reusable accumulators passed to the sink */
+	private IntInputs elementInputs_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, with the scalar kernels */
+	public BlockMaxTimesEngine(GlobalNetwork net, int blockSize) {
+		
+		this(net, blockSize, new ScalarBlockKernel());
+	}
+	
+	
+	/** Constructor, with the given kernels (see BlockKernel.getKernel()) */
+	public BlockMaxTimesEngine(GlobalNetwork net, int blockSize, BlockKernel kernel) {
+
+		kernel_ = kernel;
+		elementTf_ = net.getElementTf();
+		transcriptElement_ = net.getTranscriptElement();
+		geneTranscript_ = net.getGeneTranscript();
+		B_ = blockSize;
+		
+		int numTfs = elementTf_.getNumCols();
+		int numElements = transcriptElement_.getNumCols();
+		
+		y_ = new double[B_];
+		tfAcc_ = new double[numTfs * B_];
+		tfs_ = new int[numTfs];
+		tfStamp_ = new int[numTfs];
+		
+		elementAcc_ = new double[16 * B_];
+		elements_ = new int[16];
+		elementSlot_ = new int[numElements];
+		elementStamp_ = new int[numElements];
+		
+		tfInputs_ = new IntInputs();
+		elementInputs_ = new IntInputs();
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Compute the tf and element inputs of the genes for each sample of the block and pass
+	 * them to the sink (the accumulators are reused, the sink must copy them).
+	 * @param elementExpr Element expression, node-major (element*B + s)
+	 * @param transcriptExpr Transcript expression, node-major (transcript*B + s), or null if
+	 * all transcripts are active and their expression is not used (promoters)
+	 * @param numSamples Number of samples in this block (<= B, the last block may be smaller)
+	 */
+	public void propagate(double[] elementExpr, double[] transcriptExpr, int numSamples, BlockSink sink) {
+
+		final int B = B_;
+		
+		for (int g=0; g<geneTranscript_.getNumRows(); g++) {
+			stamp_++;
+			numTfs_ = 0;
+			numElements_ = 0;
+			
+			// For each transcript of this gene
+			for (int kt=geneTranscript_.rowStart(g); kt<geneTranscript_.rowEnd(g); kt++) {
+				int t = geneTranscript_.col(kt);
+				int tOffset = t*B;
+				if (transcriptExpr != null && tOffset >= transcriptExpr.length)
+					continue;
+
+				// For each element of this transcript
+				for (int ke=transcriptElement_.rowStart(t); ke<transcriptElement_.rowEnd(t); ke++) {
+					int e = transcriptElement_.col(ke);
+					int eOffset = e*B;
+					if (eOffset >= elementExpr.length)
+						continue;
+					
+					// element---transcript weight for each sample
+					double distanceWeight = transcriptElement_.value(ke);
+					if (!kernel_.linkWeights(elementExpr, eOffset, transcriptExpr, tOffset, distanceWeight, y_, numSamples))
+						continue;
+					
+					// Element accumulators (get the slot first, elementAcc_ may grow)
+					int slotOffset = elementSlot(e) * B;
+					kernel_.maxMerge(y_, elementAcc_, slotOffset, numSamples);
+					
+					// For each tf of this element
+					for (int kf=elementTf_.rowStart(e); kf<elementTf_.rowEnd(e); kf++)
+						kernel_.scaledMaxMerge(elementTf_.value(kf), y_, tfAcc_, tf(elementTf_.col(kf)) * B, numSamples);
+				}
+			}
+			
+			if (numElements_ > 0)
+				emit(g, numSamples, sink);
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+		
+	/** Pass the inputs of gene g for each sample to the sink (skip samples where the gene has no active links) */
+	private void emit(int g, int numSamples, BlockSink sink) {
+		
+		for (int s=0; s<numSamples; s++) {
+			elementInputs_.clear();
+			for (int i=0; i<numElements_; i++) {
+				double w = elementAcc_[i*B_ + s];
+				if (w != INACTIVE)
+					elementInputs_.add(elements_[i], w);
+			}
+			if (elementInputs_.size() == 0)
+				continue;
+			
+			tfInputs_.clear();
+			for (int i=0; i<numTfs_; i++) {
+				double w = tfAcc_[tfs_[i]*B_ + s];
+				if (w != INACTIVE)
+					tfInputs_.add(tfs_[i], w);
+			}
+			sink.gene(s, g, tfInputs_, elementInputs_);
+		}
+	}
+	
+	
+	/** Get the accumulator of the given tf for the current gene (initialize it if needed) */
+	private int tf(int tf) {
+		
+		if (tfStamp_[tf] != stamp_) {
+			tfStamp_[tf] = stamp_;
+			tfs_[numTfs_++] = tf;
+			Arrays.fill(tfAcc_, tf*B_, (tf+1)*B_, INACTIVE);
+		}
+		return tf;
+	}
+	
+	
+	/** Get the accumulator slot of the given element for the current gene (initialize it if needed) */
+	private int elementSlot(int e) {
+		
+		if (elementStamp_[e] != stamp_) {
+			if (numElements_ == elements_.length) {
+				elements_ = Arrays.copyOf(elements_, 2*numElements_);
+				elementAcc_ = Arrays.copyOf(elementAcc_, 2*numElements_*B_);
+			}
+			elementStamp_[e] = stamp_;
+			elementSlot_[e] = numElements_;
+			elements_[numElements_] = e;
+			Arrays.fill(elementAcc_, numElements_*B_, (numElements_+1)*B_, INACTIVE);
+			numElements_++;
+		}
+		return elementSlot_[e];
+	}
+	
+	
+	// ============================================================================
+	// BLOCK SINK
+	
+	/** Receives the inputs of each gene for each sample of the block */
+	public interface BlockSink {
+		
+		/** Inputs of the given gene in sample s of the block (the accumulators are reused) */
+		public void gene(int s, int gene, IntInputs tfInputs, IntInputs elementInputs);
+	}
+	
+}
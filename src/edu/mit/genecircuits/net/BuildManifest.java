@@ -0,0 +1,254 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import edu.mit.genecircuits.FileExport;
+import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Manifest of the circuits built in an output directory, used by incremental runs to only
+ * rebuild the samples whose inputs changed. The inputs are fingerprinted: the global network
+ * files by their size and content checksum, each sample by a hash of its expression columns
+ * (node ids and values of the non-zero entries, independent of the row order). A sample is
+ * up to date if the previous manifest has the same options (settings that change the output,
+ * e.g. pruning), network and sample fingerprints. The manifest is a tab-separated text file:
+ * "#version", "#options" and "#network" lines, then one line per sample.
+ */
+public class BuildManifest {
+
+	/** Name of the manifest file in the output directory */
+	public static final String FILENAME = "manifest.txt";
+	/** Format version, a manifest with another version is ignored */
+	private static final String VERSION = "1";
+	
+	/** The manifest file */
+	private String filename_ = null;
+	
+	/** Options of the previous run */
+	private String previousOptions_ = null;
+	/** Network fingerprint of the previous run (null if no previous manifest) */
+	private String previousNetwork_ = null;
+	/** Sample fingerprints of the previous run */
+	private HashMap<String, String> previousSamples_ = new HashMap<String, String>();
+	
+	/** Options of this run */
+	private String options_ = "";
+	/** Network fingerprint of this run */
+	private String network_ = null;
+	/** Sample fingerprints of this run, in sample order */
+	private LinkedHashMap<String, String> samples_ = new LinkedHashMap<String, String>();
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, load the previous manifest (if any) */
+	public BuildManifest(String filename) {
+		
+		filename_ = filename;
+		if (new File(filename).exists())
+			load();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Set the options of this run (settings that change the output) */
+	public void setOptions(String options) {
+		
+		options_ = options;
+	}
+	
+	
+	/** Fingerprint the global network files of this run */
+	public void setNetwork(String[] files) {
+		
+		StringBuilder fingerprint = new StringBuilder();
+		for (String file : files) {
+			if (fingerprint.length() > 0)
+				fingerprint.append(',');
+			fingerprint.append(fingerprintFile(file));
+		}
+		network_ = fingerprint.toString();
+	}
+	
+	
+	/** Fingerprint the samples of this run (the matrices must have the same samples) */
+	public void setSamples(String[] samples, ExpressionMatrix[] matrices) {
+		
+		long[][] idHashes = new long[matrices.length][];
+		for (int m=0; m<matrices.length; m++)
+			idHashes[m] = hashIds(matrices[m].getNodes());
+		
+		for (int k=0; k<samples.length; k++) {
+			StringBuilder fingerprint = new StringBuilder();
+			for (int m=0; m<matrices.length; m++) {
+				if (m > 0)
+					fingerprint.append(':');
+				fingerprint.append(Long.toHexString(hashColumn(matrices[m], idHashes[m], k)));
+			}
+			samples_.put(samples[k], fingerprint.toString());
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** True if the sample was built by the previous run with the same inputs */
+	public boolean isUpToDate(String sample) {
+		
+		if (previousNetwork_ == null || !previousNetwork_.equals(network_) || !options_.equals(previousOptions_))
+			return false;
+		String previous = previousSamples_.get(sample);
+		return previous != null && previous.equals(samples_.get(sample));
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Write the manifest of this run (call once all circuits are written) */
+	public void write() {
+		
+		// Unique temporary file, replaces the previous manifest only when complete
+		File manifest = new File(filename_);
+		File tmpFile = null;
+		try {
+			tmpFile = BinaryFiles.createTempFile(manifest);
+			FileExport writer = new FileExport(tmpFile.getPath());
+			writer.println("#version\t" + VERSION);
+			writer.println("#options\t" + options_);
+			writer.println("#network\t" + network_);
+			for (Entry<String, String> entry : samples_.entrySet())
+				writer.println(entry.getKey() + "\t" + entry.getValue());
+			writer.close();
+			BinaryFiles.replace(tmpFile, manifest);
+			
+		} catch (IOException e) {
+			if (tmpFile != null)
+				tmpFile.delete();
+			GcMain.error("Cannot write the manifest " + filename_ + ": " + e.getMessage());
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Fingerprint of a file: size and CRC32 of its content */
+	public static String fingerprintFile(String filename) {
+		
+		CRC32 crc = new CRC32();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(filename);
+			byte[] buffer = new byte[1 << 16];
+			for (int n=in.read(buffer); n>=0; n=in.read(buffer))
+				crc.update(buffer, 0, n);
+			in.close();
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+		return new File(filename).length() + "-" + Long.toHexString(crc.getValue());
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Load the previous manifest */
+	private void load() {
+		
+		FileParser parser = new FileParser(filename_, true);
+		String version = null;
+		while (parser.nextRecord()) {
+			if (parser.getNumFields() != 2)
+				parser.error("Expected 2 fields in manifest " + filename_);
+			String key = parser.stringField(0);
+			if (key.equals("#version"))
+				version = parser.stringField(1);
+			else if (key.equals("#options"))
+				previousOptions_ = parser.stringField(1);
+			else if (key.equals("#network"))
+				previousNetwork_ = parser.stringField(1);
+			else
+				previousSamples_.put(key, parser.stringField(1));
+		}
+		parser.close();
+		
+		// Different format: rebuild everything
+		if (!VERSION.equals(version)) {
+			previousNetwork_ = null;
+			previousSamples_.clear();
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 64-bit hashes of the ids */
+	private static long[] hashIds(String[] ids) {
+		
+		long[] hashes = new long[ids.length];
+		for (int i=0; i<ids.length; i++) {
+			// FNV-1a
+			long h = 0xcbf29ce484222325L;
+			for (int c=0; c<ids[i].length(); c++)
+				h = (h ^ ids[i].charAt(c)) * 0x100000001b3L;
+			hashes[i] = h;
+		}
+		return hashes;
+	}
+	
+	
+	/** Hash of the non-zero entries of sample k (order independent sum of the hashes of the (id, value) pairs) */
+	private static long hashColumn(ExpressionMatrix matrix, long[] idHashes, int k) {
+		
+		long hash = matrix.colEnd(k) - matrix.colStart(k);
+		for (int p=matrix.colStart(k); p<matrix.colEnd(k); p++)
+			hash += mix(idHashes[matrix.row(p)] * 31 + Double.doubleToLongBits(matrix.value(p)));
+		return hash;
+	}
+	
+	
+	/** Finalizer of SplitMix64 */
+	private static long mix(long z) {
+		
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+}
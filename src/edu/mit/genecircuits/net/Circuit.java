@@ -25,51 +25,84 @@ THE SOFTWARE.
  */
 package edu.mit.genecircuits.net;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map.Entry;
 
 import edu.mit.genecircuits.FileExport;
 import edu.mit.genecircuits.GcMain;
-import edu.mit.genecircuits.GcUtils;
+import edu.mit.genecircuits.ScientificFormat;
 
 
 /**
- * 
+ * The regulatory circuit of a sample. Nodes are stored in arrays indexed by their index in
+ * the run-wide NodeDictionary (null if the node is not part of the circuit). Transcripts are
+ * not nodes of the circuit: the element---transcript---gene links are only walked by
+ * MaxTimesEngine (see GlobalNetwork), which gives the element inputs of the genes directly.
  */
 public class Circuit {
 
-	/** The TFs */
-	private HashMap<String, Tf> tfs_ = null;
+	/** The node dictionary (shared by all circuits of a run) */
+	private NodeDictionary dictionary_ = null;
+	
+	/** Flags the TFs of this circuit (the TF nodes are shared, see NodeDictionary) */
+	private boolean[] hasTf_ = null;
 	/** The regulatory elements */
-	private HashMap<String, RegElement> elements_ = null;
-	/** The transcripts */
-	private HashMap<String, Transcript> transcripts_ = null;
+	private RegElement[] elements_ = null;
 	/** The genes */
-	private HashMap<String, Gene> genes_ = null;
-		
+	private Gene[] genes_ = null;
+	
+	/** The TFs of this circuit, in the order they were added */
+	private ArrayList<Tf> tfList_ = null;
+	/** The regulatory elements of this circuit, in the order they were added */
+	private ArrayList<RegElement> elementList_ = null;
+	/** The genes of this circuit, in the order they were added */
+	private ArrayList<Gene> geneList_ = null;
+	
+	/** Buffer used to format the lines of the output files */
+	private char[] line_ = new char[256];
+	
 	
 	// ============================================================================
 	// PUBLIC METHODS
 	
-	/** Constructor */
-	public Circuit() {
+	/** Constructor, the dictionary must already contain all nodes */
+	public Circuit(NodeDictionary dictionary) {
 
-		tfs_ = new HashMap<String, Tf>();
-		elements_ = new HashMap<String, RegElement>();
-		transcripts_ = new HashMap<String, Transcript>();
-		genes_ = new HashMap<String, Gene>();
+		dictionary_ = dictionary;
+		
+		hasTf_ = new boolean[dictionary.getNumTfs()];
+		elements_ = new RegElement[dictionary.getNumElements()];
+		genes_ = new Gene[dictionary.getNumGenes()];
+		
+		tfList_ = new ArrayList<Tf>();
+		elementList_ = new ArrayList<RegElement>();
+		geneList_ = new ArrayList<Gene>();
 	}
 
 	
 	// ----------------------------------------------------------------------------
 
-	/** Print number of genes, transcripts, etc. */
+	/** Print number of genes, elements, etc. */
 	public void printInfo() {
 	
-		GcMain.println("- " + tfs_.size() + "\tTFs");
-		GcMain.println("- " + elements_.size() + "\tRegulatory elements");
-		GcMain.println("- " + transcripts_.size() + "\tTranscripts");
-		GcMain.println("- " + genes_.size() + "\tGenes\n");
+		GcMain.println("- " + tfList_.size() + "\tTFs");
+		GcMain.println("- " + elementList_.size() + "\tRegulatory elements");
+		GcMain.println("- " + geneList_.size() + "\tGenes\n");
+	}
+	
+	
+	/** Number of tf---gene and element---gene edges */
+	public int getNumEdges() {
+		
+		int numEdges = 0;
+		for (Gene g : geneList_) {
+			if (g.getTfInputs() != null)
+				numEdges += g.getTfInputs().getWeights().size();
+			if (g.getEnhancerInputs() != null)
+				numEdges += g.getEnhancerInputs().getWeights().size();
+		}
+		return numEdges;
 	}
 	
 	
@@ -78,7 +111,14 @@ public class Circuit {
 	/** Write the TF--gene network */
 	public void writeTfGene(String filename) {
 
-		writeTfNode(filename, genes_);
+		writeTfGene(new FileExport(filename, true));
+	}
+	
+	
+	/** Write the TF--gene network to the given writer, close it, return the number of edges */
+	public int writeTfGene(FileExport writer) {
+
+		return writeTfNode(writer, geneList_);
 	}
 
 	// ----------------------------------------------------------------------------
@@ -86,30 +126,35 @@ public class Circuit {
 	/** Write the TF--regElement network */
 	public void writeTfElement(String filename) {
 
-		writeTfNode(filename, elements_);
+		writeTfElement(new FileExport(filename, true));
+	}
+	
+	
+	/** Write the TF--regElement network to the given writer, close it, return the number of edges */
+	public int writeTfElement(FileExport writer) {
+
+		return writeTfNode(writer, elementList_);
 	}
 
 
 	// ----------------------------------------------------------------------------
 
-	/** Write the TF--gene network */
-	@SuppressWarnings("rawtypes")
-	private void writeTfNode(String filename, HashMap nodes) {
+	/** Write the TF--gene network, return the number of edges */
+	private int writeTfNode(FileExport writer, ArrayList<? extends Node> nodes) {
 
-		// Open file
-		FileExport writer = new FileExport(filename, true);
-			
-		for (Object o : nodes.values()) {
-			Node n = (Node) o;
+		int numEdges = 0;
+		for (Node n : nodes) {
 			HashMap<Node, Double> weights = n.getTfInputs().getWeights();
 			for (Entry<Node, Double> entry : weights.entrySet()) {
 				if (entry.getValue() == 0)
 					throw new RuntimeException("There should be no zero weights");
 				else
-					writer.println(entry.getKey().getId() + "\t" + n.getId() + "\t" + GcUtils.toStringScientific10(entry.getValue()));
+					printEdge(writer, entry.getKey().getId(), n.getId(), entry.getValue());
 			}
+			numEdges += weights.size();
 		}
 		writer.close();
+		return numEdges;
 	}
 
 	
@@ -118,19 +163,26 @@ public class Circuit {
 	/** Write the enhancer--gene network */
 	public void writeEnhancerGene(String filename) {
 
-		// Open file
-		FileExport writer = new FileExport(filename, true);
-			
-		for (Gene g : genes_.values()) {
+		writeEnhancerGene(new FileExport(filename, true));
+	}
+	
+	
+	/** Write the enhancer--gene network to the given writer, close it, return the number of edges */
+	public int writeEnhancerGene(FileExport writer) {
+
+		int numEdges = 0;
+		for (Gene g : geneList_) {
 			HashMap<Node, Double> weights = g.getEnhancerInputs().getWeights();
 			for (Entry<Node, Double> entry : weights.entrySet()) {
 				if (entry.getValue() == 0)
 					throw new RuntimeException("There should be no zero weights");
 				else
-					writer.println(entry.getKey().getId() + "\t" + g.getId() + "\t" + GcUtils.toStringScientific10(entry.getValue()));
+					printEdge(writer, entry.getKey().getId(), g.getId(), entry.getValue());
 			}
+			numEdges += weights.size();
 		}
 		writer.close();
+		return numEdges;
 	}
 
 	
@@ -157,86 +209,145 @@ public class Circuit {
 	// ADD NODES
 
 	/** Add / get tf */
-	public Tf addTf(String id) {
+	public Tf addTf(int index) {
 		
-		Tf tf = tfs_.get(id);
-		if (tf == null) {
-			tf = new Tf(id);
-			tfs_.put(id, tf);
+		Tf tf = dictionary_.getTf(index);
+		if (!hasTf_[index]) {
+			hasTf_[index] = true;
+			tfList_.add(tf);
 		}
 		return tf;
 	}
 
 	/** Add / get regulatory element */
-	public RegElement addElement(String id) {
+	public RegElement addElement(int index) {
 		
-		RegElement element = elements_.get(id);
+		RegElement element = elements_[index];
 		if (element == null) {
-			element = new RegElement(id);
-			elements_.put(id, element);
+			element = new RegElement(dictionary_.getElementId(index));
+			element.setIndex(index);
+			elements_[index] = element;
+			elementList_.add(element);
 		}
 		return element;
 	}
 
-	/** Add / get transcript */
-	public Transcript addTranscript(String id) {
-		
-		Transcript transcript = transcripts_.get(id);
-		if (transcript == null) {
-			transcript = new Transcript(id);
-			transcripts_.put(id, transcript);
-		}
-		return transcript;
-	}
-
 	/** Add / get gene */
-	public Gene addGene(String id) {
+	public Gene addGene(int index) {
 
-		Gene gene = genes_.get(id);
+		Gene gene = genes_[index];
 		if (gene == null) {
-			gene = new Gene(id);
-			genes_.put(id, gene);
+			gene = new Gene(dictionary_.getGeneId(index));
+			gene.setIndex(index);
+			genes_[index] = gene;
+			geneList_.add(gene);
 		}
 		return gene;
 	}
 
 	
+	// ----------------------------------------------------------------------------
+
+	/** Add / get tf */
+	public Tf addTf(String id) { return addTf(checkIndex(dictionary_.getTfIndex(id), id)); }
+	/** Add / get regulatory element */
+	public RegElement addElement(String id) { return addElement(checkIndex(dictionary_.getElementIndex(id), id)); }
+	/** Add / get gene */
+	public Gene addGene(String id) { return addGene(checkIndex(dictionary_.getGeneIndex(id), id)); }
+
+	
 	// ============================================================================
 	// ADD LINKS
 	
 	/** tf---element */
-	public void addTfElement(String tfId, RegElement element, double motifConf) {
+	public void addTfElement(int tfIndex, RegElement element, double motifConf) {
 
 		// Create / get the nodes
-		Tf tf = addTf(tfId);
+		Tf tf = addTf(tfIndex);
 		// Add the link
 		element.add(tf, motifConf);
 	}
 
 	
-	/** Add transcript---gene */
-	public void addTranscriptGene(String transcriptId, String geneId) {
-		
-		Gene gene = genes_.get(geneId);
-		Transcript transcript = transcripts_.get(transcriptId);
-		gene.add(transcript);
-		//Gene genes_.get(gene).addInput(transcript);
+	/** tf---element */
+	public void addTfElement(String tfId, RegElement element, double motifConf) {
+
+		addTfElement(checkIndex(dictionary_.getTfIndex(tfId), tfId), element, motifConf);
 	}
 
 	
 	// ============================================================================
 	// PRIVATE METHODS
 		
+	/** Write the line "source\ttarget\tweight" (the weight in the format of GcUtils.toStringScientific10()) */
+	private void printEdge(FileExport writer, String source, String target, double weight) {
+		
+		int length = source.length() + target.length() + 3 + ScientificFormat.MAX_LENGTH;
+		if (line_.length < length)
+			line_ = new char[2*length];
+		
+		source.getChars(0, source.length(), line_, 0);
+		int pos = source.length();
+		line_[pos++] = '\t';
+		target.getChars(0, target.length(), line_, pos);
+		pos += target.length();
+		line_[pos++] = '\t';
+		pos = ScientificFormat.format(weight, line_, pos);
+		line_[pos++] = '\n';
+		writer.print(line_, 0, pos);
+	}
+	
+	
+	/** Throw an exception if the id was not found in the dictionary */
+	private int checkIndex(int index, String id) {
+		
+		if (index == -1)
+			throw new IllegalArgumentException("Node not found in dictionary: " + id);
+		return index;
+	}
+	
+	
+	/** Return the node with the given index, null if the index is -1 */
+	private <T> T get(T[] nodes, int index) {
+		
+		return index == -1 ? null : nodes[index];
+	}
+	
+	
+	/** Map id => node for the given nodes */
+	private <T extends Node> HashMap<String, T> toMap(ArrayList<T> nodes) {
+		
+		HashMap<String, T> map = new HashMap<String, T>();
+		for (T n : nodes)
+			map.put(n.getId(), n);
+		return map;
+	}
+	
 
 	// ============================================================================
 	// GETTERS AND SETTERS
 	
-	public RegElement getElement(String id) { return elements_.get(id); }
-	public Transcript getTranscript(String id) { return transcripts_.get(id); }
+	public NodeDictionary getDictionary() { return dictionary_; }
+	
+	/** Get tf by its index, null if it's not part of this circuit */
+	public Tf getTf(int index) { return hasTf_[index] ? dictionary_.getTf(index) : null; }
+	/** Get regulatory element by its index, null if it's not part of this circuit */
+	public RegElement getElement(int index) { return elements_[index]; }
+	/** Get gene by its index, null if it's not part of this circuit */
+	public Gene getGene(int index) { return genes_[index]; }
+	
+	public RegElement getElement(String id) { return get(elements_, dictionary_.getElementIndex(id)); }
+	public Gene getGene(String id) { return get(genes_, dictionary_.getGeneIndex(id)); }
+	
+	public ArrayList<Tf> getTfList() { return tfList_; }
+	public ArrayList<RegElement> getElementList() { return elementList_; }
+	public ArrayList<Gene> getGeneList() { return geneList_; }
 	
-	public HashMap<String, Tf> getTfs() { return tfs_; }
-	public HashMap<String, RegElement> getElements() { return elements_; }
-	public HashMap<String, Transcript> getTranscripts() { return transcripts_; }
-	public HashMap<String, Gene> getGenes() { return genes_; }
+	/** Map id => tf (built on every call, use getTfList() for iteration) */
+	public HashMap<String, Tf> getTfs() { return toMap(tfList_); }
+	/** Map id => regulatory element (built on every call, use getElementList() for iteration) */
+	public HashMap<String, RegElement> getElements() { return toMap(elementList_); }
+	/** Map id => gene (built on every call, use getGeneList() for iteration) */
+	public HashMap<String, Gene> getGenes() { return toMap(geneList_); }
 	
 }
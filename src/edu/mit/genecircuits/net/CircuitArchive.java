@@ -0,0 +1,236 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import edu.mit.genecircuits.FileExport;
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Archive storing the output files of all samples of a run (e.g., enhancer---gene.<sample>.txt.gz)
+ * in a single file, with an index of the samples (see CircuitArchiveReader). Layout (little
+ * endian): a header (magic, version), the entries (each a complete gzip file, identical to the
+ * per-sample file), the index (number of entries, sample names, file names, offsets, lengths),
+ * and a trailer with the position of the index. Entries can be added by several threads; the
+ * archive is written to a temporary file that is renamed by close().
+ */
+public class CircuitArchive {
+
+	/** Identifies circuit archives ("GCAR") */
+	public static final int MAGIC = 0x47434152;
+	/** Format version */
+	public static final int VERSION = 1;
+	/** Extension of archive files */
+	public static final String EXTENSION = ".archive";
+	/** Size of the header (magic, version) */
+	public static final int HEADER_SIZE = 8;
+	/** Size of the trailer (index position, magic) */
+	public static final int TRAILER_SIZE = 12;
+	
+	/** The archive filename */
+	private String filename_ = null;
+	/** The temporary file being written (unique, in the directory of the archive) */
+	private File tmpFile_ = null;
+	/** The open temporary file */
+	private RandomAccessFile file_ = null;
+	/** Its channel */
+	private FileChannel channel_ = null;
+	/** The archive written by the previous run (null if none or not kept) */
+	private CircuitArchiveReader previous_ = null;
+	
+	/** Sample of each entry */
+	private ArrayList<String> samples_ = new ArrayList<String>();
+	/** File name of each entry */
+	private ArrayList<String> filenames_ = new ArrayList<String>();
+	/** Position of each entry */
+	private ArrayList<Long> offsets_ = new ArrayList<Long>();
+	/** Size of each entry */
+	private ArrayList<Long> lengths_ = new ArrayList<Long>();
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, create the archive */
+	public CircuitArchive(String filename) {
+		
+		this(filename, false);
+	}
+	
+	
+	/** Constructor, create the archive, keepPrevious: entries can be copied from the existing archive (see copyPrevious()) */
+	public CircuitArchive(String filename, boolean keepPrevious) {
+		
+		filename_ = filename;
+		if (keepPrevious && new File(filename).exists())
+			previous_ = new CircuitArchiveReader(filename);
+		GcMain.println("Writing archive: " + filename);
+		
+		try {
+			tmpFile_ = BinaryFiles.createTempFile(new File(filename));
+			file_ = new RandomAccessFile(tmpFile_, "rw");
+			channel_ = file_.getChannel();
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION);
+			header.flip();
+			write(header);
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Open an entry: the file (gzip compressed) is written to memory, and added to the archive
+	 * when the returned writer is closed
+	 * @param sample The sample
+	 * @param filename The name of the corresponding per-sample file (without path, with .gz)
+	 */
+	public FileExport openEntry(final String sample, final String filename) {
+		
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+		return new FileExport(buffer, true) {
+			@Override
+			public void close() {
+				super.close();
+				add(sample, filename, buffer.toByteArray());
+			}
+		};
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Append an entry (thread safe) */
+	public synchronized void add(String sample, String filename, byte[] data) {
+		
+		if (channel_ == null)
+			throw new IllegalStateException("Archive is closed: " + filename_);
+		if (filenames_.contains(filename))
+			throw new IllegalArgumentException("Duplicate archive entry: " + filename);
+		
+		try {
+			long offset = channel_.position();
+			write(ByteBuffer.wrap(data));
+			
+			samples_.add(sample);
+			filenames_.add(filename);
+			offsets_.add(offset);
+			lengths_.add((long) data.length);
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** True if the archive of the previous run has an entry for the given sample */
+	public boolean hasPrevious(String sample) {
+		
+		return previous_ != null && previous_.contains(sample);
+	}
+	
+	
+	/** Copy the entry of the given sample from the archive of the previous run */
+	public void copyPrevious(String sample) {
+		
+		add(sample, previous_.getEntryFilename(sample), previous_.read(sample));
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Write the index and rename the archive */
+	public synchronized void close() {
+		
+		if (channel_ == null)
+			return;
+		
+		try {
+			long indexPosition = channel_.position();
+			ByteBuffer buffer = BinaryFiles.allocate();
+			int n = samples_.size();
+			BinaryFiles.putInt(channel_, buffer, n);
+			BinaryFiles.putStrings(channel_, buffer, samples_.toArray(new String[n]));
+			BinaryFiles.putStrings(channel_, buffer, filenames_.toArray(new String[n]));
+			for (int i=0; i<n; i++)
+				BinaryFiles.putLong(channel_, buffer, offsets_.get(i));
+			for (int i=0; i<n; i++)
+				BinaryFiles.putLong(channel_, buffer, lengths_.get(i));
+			
+			// Trailer
+			BinaryFiles.putLong(channel_, buffer, indexPosition);
+			BinaryFiles.putInt(channel_, buffer, MAGIC);
+			BinaryFiles.flush(channel_, buffer);
+			
+			channel_.force(false);
+			file_.close();
+			channel_ = null;
+			if (previous_ != null)
+				previous_.close();
+			
+			// The previous archive stays in place until the new one is complete
+			BinaryFiles.replace(tmpFile_, new File(filename_));
+			
+		} catch (IOException e) {
+			tmpFile_.delete();
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Write the buffer at the current position */
+	private void write(ByteBuffer buffer) throws IOException {
+		
+		while (buffer.hasRemaining())
+			channel_.write(buffer);
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+	
+	public String getFilename() { return filename_; }
+	/** Number of entries added so far */
+	public synchronized int getNumEntries() { return samples_.size(); }
+
+}
@@ -0,0 +1,246 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+
+import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Read a circuit archive (see CircuitArchive). The index is loaded when the archive is opened;
+ * the entry of a sample is then read with a single positional read, and can be parsed directly
+ * (openParser()), or extracted back to the per-sample gzip file. Thread safe.
+ * Usage as extractor: CircuitArchiveReader <archive> [output directory] [sample ...]
+ */
+public class CircuitArchiveReader {
+
+	/** The archive filename */
+	private String filename_ = null;
+	/** The open archive */
+	private RandomAccessFile file_ = null;
+	/** Its channel */
+	private FileChannel channel_ = null;
+	
+	/** Sample of each entry */
+	private String[] samples_ = null;
+	/** File name of each entry */
+	private String[] filenames_ = null;
+	/** Position of each entry */
+	private long[] offsets_ = null;
+	/** Size of each entry */
+	private long[] lengths_ = null;
+	/** Sample => entry index */
+	private HashMap<String, Integer> index_ = new HashMap<String, Integer>();
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, open the archive and load the index */
+	public CircuitArchiveReader(String filename) {
+		
+		filename_ = filename;
+		try {
+			file_ = new RandomAccessFile(filename, "r");
+			channel_ = file_.getChannel();
+			long size = channel_.size();
+			if (size < CircuitArchive.HEADER_SIZE + CircuitArchive.TRAILER_SIZE)
+				throw new IOException("Not a circuit archive: " + filename);
+			
+			ByteBuffer header = BinaryFiles.map(channel_, 0, CircuitArchive.HEADER_SIZE);
+			ByteBuffer trailer = BinaryFiles.map(channel_, size - CircuitArchive.TRAILER_SIZE, CircuitArchive.TRAILER_SIZE);
+			long indexPosition = trailer.getLong();
+			if (header.getInt() != CircuitArchive.MAGIC || trailer.getInt() != CircuitArchive.MAGIC)
+				throw new IOException("Not a circuit archive (or incomplete): " + filename);
+			if (header.getInt() != CircuitArchive.VERSION)
+				throw new IOException("Unsupported circuit archive version: " + filename);
+			
+			// Index
+			ByteBuffer index = BinaryFiles.map(channel_, indexPosition, size - CircuitArchive.TRAILER_SIZE - indexPosition);
+			int n = index.getInt();
+			samples_ = BinaryFiles.getStrings(index, n);
+			filenames_ = BinaryFiles.getStrings(index, n);
+			offsets_ = new long[n];
+			lengths_ = new long[n];
+			for (int i=0; i<n; i++)
+				offsets_[i] = index.getLong();
+			for (int i=0; i<n; i++)
+				lengths_[i] = index.getLong();
+			for (int i=0; i<n; i++)
+				index_.put(samples_[i], i);
+			
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** The entry of the given sample (the gzip compressed per-sample file) */
+	public byte[] read(String sample) {
+		
+		int i = getEntry(sample);
+		if (lengths_[i] > Integer.MAX_VALUE)
+			throw new RuntimeException("Archive entry too large: " + filenames_[i]);
+		
+		ByteBuffer buffer = ByteBuffer.allocate((int) lengths_[i]);
+		try {
+			long position = offsets_[i];
+			while (buffer.hasRemaining()) {
+				int n = channel_.read(buffer, position);
+				if (n < 0)
+					throw new IOException("Unexpected end of archive: " + filename_);
+				position += n;
+			}
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+		return buffer.array();
+	}
+	
+	
+	/** Open the entry of the given sample as a decompressed stream */
+	public InputStream openStream(String sample) {
+		
+		try {
+			return new GZIPInputStream(new ByteArrayInputStream(read(sample)), 1 << 16);
+		} catch (IOException e) {
+			GcMain.error(e);
+			return null;
+		}
+	}
+	
+	
+	/** Open the entry of the given sample with a FileParser (edges: source, target, weight) */
+	public FileParser openParser(String sample) {
+		
+		try {
+			return new FileParser(new InputStreamReader(openStream(sample), "UTF-8"));
+		} catch (IOException e) {
+			GcMain.error(e);
+			return null;
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Write the entry of the given sample to its per-sample file in the given directory */
+	public void extract(String sample, String outDir) {
+		
+		String filename = outDir + "/" + filenames_[getEntry(sample)];
+		GcMain.println("Writing file: " + filename);
+		
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(filename);
+			out.write(read(sample));
+			out.close();
+		} catch (IOException e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
+	/** Write the entries of all samples to their per-sample files */
+	public void extractAll(String outDir) {
+		
+		new File(outDir).mkdirs();
+		for (String sample : samples_)
+			extract(sample, outDir);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Close the archive */
+	public void close() {
+		
+		BinaryFiles.close(file_);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Extract the per-sample files: CircuitArchiveReader <archive> [output directory] [sample ...] */
+	public static void main(String[] args) {
+		
+		if (args.length < 1) {
+			System.out.println("Usage: CircuitArchiveReader <archive> [output directory] [sample ...]");
+			return;
+		}
+		
+		CircuitArchiveReader reader = new CircuitArchiveReader(args[0]);
+		String outDir = args.length > 1 ? args[1] : new File(args[0]).getAbsoluteFile().getParent();
+		if (args.length > 2) {
+			new File(outDir).mkdirs();
+			for (int i=2; i<args.length; i++)
+				reader.extract(args[i], outDir);
+		} else {
+			reader.extractAll(outDir);
+		}
+		reader.close();
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Index of the entry of the given sample */
+	private int getEntry(String sample) {
+		
+		Integer i = index_.get(sample);
+		if (i == null)
+			throw new IllegalArgumentException("Sample not found in archive " + filename_ + ": " + sample);
+		return i;
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+	
+	public String getFilename() { return filename_; }
+	/** The samples, in the order they were added */
+	public String[] getSamples() { return samples_; }
+	/** The file name of the entry of the given sample */
+	public String getEntryFilename(String sample) { return filenames_[getEntry(sample)]; }
+	/** True if the archive has an entry for the given sample */
+	public boolean contains(String sample) { return index_.containsKey(sample); }
+
+}
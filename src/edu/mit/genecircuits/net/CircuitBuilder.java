@@ -26,12 +26,19 @@ THE SOFTWARE.
 package edu.mit.genecircuits.net;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map.Entry;
-
-import edu.mit.genecircuits.FileParser;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.mit.genecircuits.CircuitEvents;
+import edu.mit.genecircuits.FileExport;
 import edu.mit.genecircuits.GcMain;
+import edu.mit.genecircuits.ProgressMonitor;
+import edu.mit.genecircuits.RunMetrics;
 import edu.mit.genecircuits.Settings;
+import edu.mit.genecircuits.WritePipeline;
 
 
 /**
@@ -39,15 +46,38 @@ import edu.mit.genecircuits.Settings;
  */
 public class CircuitBuilder {
 
+	/** Prefix of the run report written to the output directories (run_report.json and run_report.tsv) */
+	public static final String REPORT_FILENAME = "run_report";
+
 	/** The samples (cell types) */
 	private String[] samples_ = null;
 	/** Promoter/enhancer expression matrix */
 	private ExpressionMatrix elementExpr_ = null;
 	/** Transcript expression matrix */
 	private ExpressionMatrix transcriptExpr_ = null;
-
-	/** The regulatory circuit that is being built */
+	/** Dictionary indexes of the rows of the promoter/enhancer expression matrix */
+	private int[] elementIndexes_ = null;
+	/** Dictionary indexes of the rows of the transcript expression matrix */
+	private int[] transcriptIndexes_ = null;
+	
+	/** Run-wide node dictionary, filled while loading the expression matrices and global networks */
+	private NodeDictionary dictionary_ = null;
+	/** Global tf---promoter and promoter---transcript network (loaded once) */
+	private GlobalNetwork promoterNet_ = null;
+	/** Global tf---enhancer and enhancer---transcript network (loaded once) */
+	private GlobalNetwork enhancerNet_ = null;
+
+	/** The regulatory circuit that was built last by buildTfPromoterGene(i) / buildTfEnhancerGene(i) */
 	private Circuit circuit_ = null;
+	/** Timing and throughput of the load, wire and write phases of the current run */
+	private RunMetrics metrics_ = null;
+	/** Per-thread dense expression buffers of the element and transcript expression (see getBlockExpr()) */
+	private ThreadLocal<double[][]> exprBuffers_ = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[2][0];
+		}
+	};
 	
 	
 	
@@ -57,6 +87,8 @@ public class CircuitBuilder {
 	/** Constructor */
 	public CircuitBuilder() {
 
+		dictionary_ = new NodeDictionary();
+		metrics_ = new RunMetrics();
 	}
 
 	
@@ -88,60 +120,71 @@ public class CircuitBuilder {
 	protected void buildTfPromoterGene() {
 		
 		// Load promoter expr
-		loadPromoterExpr();		
+		metrics_ = new RunMetrics();
+		loadPromoterExpr();
 		
 		// Create output directory
-		String outDir = Settings.circuitOutDir_ + "/tf---promoter---gene" + Settings.suffix_;
+		final String outDir = Settings.circuitOutDir_ + "/tf---promoter---gene" + Settings.suffix_;
 		new File(outDir).mkdirs();
-
-		GcMain.println("\nWiring circuits for " + samples_.length + " samples...");
+		String output = outDir + "/tf---promoter" + Settings.suffix_;
+		final CircuitArchive archive = openArchive(output);
 		
-		for (int i=0; i<samples_.length; i++) {
-			// Build circuit
-			buildTfPromoterGene(i);
-			
-			// Write TF--gene
-			String filename = outDir + "/tf---promoter---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
-			//circuit_.writeTfGene(filename);
-
-			// Write TF--promoter
-			filename = outDir + "/tf---promoter" + Settings.suffix_ + "." + samples_[i] + ".txt";
-			circuit_.writeTfElement(filename);
-		}
+		// Samples to build (all, or only those that changed in incremental mode), load the global network
+		BuildManifest manifest = openManifest(outDir, new String[] { Settings.promoterTranscriptFile_, Settings.tfPromoterFile_ }, 
+				new ExpressionMatrix[] { elementExpr_ });
+		boolean[] build = getSamplesToBuild(manifest, archive, output);
+		if (count(build) > 0)
+			loadPromoterNet();
+
+		wireSamples(build, new SampleTask() {
+			public Circuit[] wire(int first, int end) {
+				return wireTfPromoterGene(first, end);
+			}
+			public void write(int i, Circuit circuit) {
+				// Write TF--gene
+				String filename = outDir + "/tf---promoter---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
+				//circuit.writeTfGene(filename);
+
+				// Write TF--promoter
+				filename = outDir + "/tf---promoter" + Settings.suffix_ + "." + samples_[i] + ".txt";
+				RunMetrics.Phase phase = metrics_.begin(RunMetrics.WRITE, samples_[i], filename);
+				FileExport writer = openOutput(archive, i, filename);
+				phase.end(0, circuit.writeTfElement(writer), writer.getNumBytes());
+			}
+		});
+		closeOutput(manifest, archive, build);
+		writeReport(outDir);
 	}
 
 	
 	// ----------------------------------------------------------------------------
 
-	/** tf---promoter---gene */
+	/** tf---promoter---gene, the circuit of sample i is available through getCircuit() */
 	protected void buildTfPromoterGene(int i) {
 
-		// Create circuit
-		circuit_ = new Circuit();
-		// promoter_expr: add only elements with expression > 0
-		addActiveElements(i);
-		// promoter---transcript (only for active promoters)
-		loadPromoterTranscript(Settings.circuitDir_ + "/" + Settings.promoterTranscriptFile_ + Settings.suffix_ + ".txt");
-		// tf---promoter (only for active promoters)
-		loadTfElement(Settings.circuitDir_ + "/" + Settings.tfPromoterFile_ + Settings.suffix_ + ".txt");
+		if (promoterNet_ == null)
+			loadPromoterNet();
 		
-		//GcMain.println("\nLoaded:");
-		//circuit_.printInfo();
-		
-		// Weight tf---promoter by promoter expression
-		for (RegElement element : circuit_.getElements().values())
-			element.getTfInputs().multiply(element.getExpr());
+		circuit_ = wireTfPromoterGene(i, i+1)[0];
+	}
 
-		for (Gene g : circuit_.getGenes().values()) {
-			Inputs tfInputs = new Inputs();
+
+	
+	/** tf---promoter---gene, return the circuits of samples first, ..., end-1 wired together as one block */
+	protected Circuit[] buildTfPromoterGene(int first, int end) {
+
+		if (promoterNet_ == null)
+			loadPromoterNet();
 		
-			// For each transcript of this gene
-			for (Transcript t : g.getTranscripts())
-				for (Node p : t.getElementInputs().getWeights().keySet())
-					tfInputs.add(p.getTfInputs());
+		return wireTfPromoterGene(first, end);
+	}
 
-			g.setTfInputs(tfInputs);
-		}
+	
+	/** tf---promoter---gene, build and return the circuits of samples first, ..., end-1 (thread safe) */
+	private Circuit[] wireTfPromoterGene(int first, int end) {
+		
+		// Promoter expression is used as weight, all linked transcripts are included
+		return wire(promoterNet_, false, first, end);
 	}
 	
 		
@@ -151,9 +194,30 @@ public class CircuitBuilder {
 	protected void loadPromoterExpr() {
 
 		String filename = Settings.circuitDir_ + "/" + Settings.promoterExprFile_ + Settings.suffix_ + ".txt.gz";
-		elementExpr_ = new ExpressionMatrix(filename);
+		elementExpr_ = loadExpr(filename);
+		elementExpr_.printInfo();
+		elementIndexes_ = dictionary_.addElements(elementExpr_.getNodes());
 		samples_ = elementExpr_.getSamples();
 	}
+
+	
+	/** Load the global tf---promoter and promoter---transcript network */
+	protected void loadPromoterNet() {
+
+		GcMain.println("\nLoading global tf---promoter---transcript network...");
+		promoterNet_ = new GlobalNetwork(dictionary_);
+		String filename = getNetworkFile(Settings.promoterTranscriptFile_, EdgeFile.PROMOTER_TRANSCRIPT);
+		RunMetrics.Phase phase = metrics_.begin(RunMetrics.LOAD, null, filename);
+		promoterNet_.loadPromoterTranscript(filename);
+		phase.end(promoterNet_.getNumLinesRead(), promoterNet_.getElementTranscript().getNnz(), promoterNet_.getNumBytesRead());
+		
+		filename = getNetworkFile(Settings.tfPromoterFile_, EdgeFile.TF_ELEMENT);
+		phase = metrics_.begin(RunMetrics.LOAD, null, filename);
+		promoterNet_.loadTfElement(filename);
+		phase.end(promoterNet_.getNumLinesRead(), promoterNet_.getElementTf().getNnz(), promoterNet_.getNumBytesRead());
+		promoterNet_.printInfo();
+		dictionary_.printInfo();
+	}
 	
 	
 	// ----------------------------------------------------------------------------
@@ -162,86 +226,76 @@ public class CircuitBuilder {
 	protected void buildTfEnhancerGene() {
 		
 		// Load enhancer and transcript expr
+		metrics_ = new RunMetrics();
 		loadEnhancerExpr();		
 		loadTranscriptExpr();
 		
 		// Create output directory
-		String outDir = Settings.circuitOutDir_ + "/tf---enhancer---gene" + Settings.suffix_;
+		final String outDir = Settings.circuitOutDir_ + "/tf---enhancer---gene" + Settings.suffix_;
 		new File(outDir).mkdirs();
-
-		GcMain.println("\nWiring circuits for " + samples_.length + " samples...");
+		String output = outDir + "/enhancer---gene" + Settings.suffix_;
+		final CircuitArchive archive = openArchive(output);
 		
-		for (int i=0; i<samples_.length; i++) {
-			// Build circuit
-			buildTfEnhancerGene(i);
-
-			// Write TF--gene
-			String filename = outDir + "/tf---enhancer---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
-			//circuit_.writeTfGene(filename);
-			
-			// Write TF--enhancer
-			filename = outDir + "/tf---enhancer" + Settings.suffix_ + "." + samples_[i] + ".txt";
-			//circuit_.writeTfElement(filename);
-			
-			// Write enhancer---transcript
-			filename = outDir + "/enhancer---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
-			circuit_.writeEnhancerGene(filename);
-		}
+		// Samples to build (all, or only those that changed in incremental mode), load the global network
+		BuildManifest manifest = openManifest(outDir, new String[] { Settings.enhancerTranscriptFile_, Settings.tfEnhancerFile_ }, 
+				new ExpressionMatrix[] { elementExpr_, transcriptExpr_ });
+		boolean[] build = getSamplesToBuild(manifest, archive, output);
+		if (count(build) > 0)
+			loadEnhancerNet();
+
+		wireSamples(build, new SampleTask() {
+			public Circuit[] wire(int first, int end) {
+				return wireTfEnhancerGene(first, end);
+			}
+			public void write(int i, Circuit circuit) {
+				// Write TF--gene
+				String filename = outDir + "/tf---enhancer---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
+				//circuit.writeTfGene(filename);
+
+				// Write TF--enhancer
+				filename = outDir + "/tf---enhancer" + Settings.suffix_ + "." + samples_[i] + ".txt";
+				//circuit.writeTfElement(filename);
+
+				// Write enhancer---transcript
+				filename = outDir + "/enhancer---gene" + Settings.suffix_ + "." + samples_[i] + ".txt";
+				RunMetrics.Phase phase = metrics_.begin(RunMetrics.WRITE, samples_[i], filename);
+				FileExport writer = openOutput(archive, i, filename);
+				phase.end(0, circuit.writeEnhancerGene(writer), writer.getNumBytes());
+			}
+		});
+		closeOutput(manifest, archive, build);
+		writeReport(outDir);
 	}
 
 	
 	// ----------------------------------------------------------------------------
 
-	/** tf---enhancer---gene */
+	/** tf---enhancer---gene, the circuit of sample i is available through getCircuit() */
 	protected void buildTfEnhancerGene(int i) {
 
-		// Create circuit
-		circuit_ = new Circuit();
-		// enhancer_expr: add only elements with expression > 0
-		addActiveElements(i);
-		// transcrpt_expr: add only transcripts with expression > 0
-		addActiveTranscripts(i);
-		// enhancer---transcript (only for active enhancers)
-		loadEnhancerTranscript(Settings.circuitDir_ + "/" + Settings.enhancerTranscriptFile_ + Settings.suffix_ + ".txt");
-		// tf---enhancer (only for active enhancers)
-		loadTfElement(Settings.circuitDir_ + "/" + Settings.tfEnhancerFile_ + Settings.suffix_ + ".txt");
-		
-		//GcMain.println("\nLoaded:");
-		//circuit_.printInfo();
-		
-		for (Gene g : circuit_.getGenes().values()) {
-			Inputs tfInputs = new Inputs();
-			Inputs enhancerInputs = new Inputs();
-		
-			// For each transcript of this gene
-			for (Transcript t : g.getTranscripts()) {
-				// enhancer---transcript_t
-				HashMap<Node, Double> enhancerInputs_t = t.getElementInputs().getWeights();
-				// transcript expression
-				double transcriptExpr = t.getExpr();
-				
-				for (Node e : enhancerInputs_t.keySet()) {
-					double distanceWeight = enhancerInputs_t.get(e);
-					double exprWeight = Math.sqrt(e.getExpr() * transcriptExpr);
-					double enhancerTranscriptWeight = distanceWeight * exprWeight;
-					// DANGEROUS, check that this doesn't affect the iterator (we are looping over this)
-					//enhancerInputs_t.put(e, enhancerTranscriptWeight);
-					enhancerInputs.add(e, enhancerTranscriptWeight);
-					
-					// For each tf of this enhancer, add it to the tf inputs of the transcript
-					for (Entry<Node, Double> entry : e.getTfInputs().getWeights().entrySet()) {
-						double x = entry.getValue() * enhancerTranscriptWeight;
-						tfInputs.add(entry.getKey(), x);
-					}
-				}
-			}
-			g.setTfInputs(tfInputs);
-			g.setEnhancerInputs(enhancerInputs);
-		}
+		if (enhancerNet_ == null)
+			loadEnhancerNet();
+
+		circuit_ = wireTfEnhancerGene(i, i+1)[0];
+	}
+
+
+	
+	/** tf---enhancer---gene, return the circuits of samples first, ..., end-1 wired together as one block */
+	protected Circuit[] buildTfEnhancerGene(int first, int end) {
+
+		if (enhancerNet_ == null)
+			loadEnhancerNet();
 		
-		// Weight tf---enhancer by enhancer expression
-		for (RegElement element : circuit_.getElements().values())
-			element.getTfInputs().multiply(element.getExpr());
+		return wireTfEnhancerGene(first, end);
+	}
+
+	
+	/** tf---enhancer---gene, build and return the circuits of samples first, ..., end-1 (thread safe) */
+	private Circuit[] wireTfEnhancerGene(int first, int end) {
+
+		// Only active transcripts, geometric mean of enhancer and transcript expression is used as weight
+		return wire(enhancerNet_, true, first, end);
 	}
 
 	
@@ -251,7 +305,9 @@ public class CircuitBuilder {
 	protected void loadEnhancerExpr() {
 
 		String filename = Settings.circuitDir_ + "/" + Settings.enhancerExprFile_ + ".txt.gz";
-		elementExpr_ = new ExpressionMatrix(filename);
+		elementExpr_ = loadExpr(filename);
+		elementExpr_.printInfo();
+		elementIndexes_ = dictionary_.addElements(elementExpr_.getNodes());
 		setSamples(elementExpr_.getSamples());
 	}
 
@@ -262,157 +318,469 @@ public class CircuitBuilder {
 	protected void loadTranscriptExpr() {
 
 		String filename = Settings.circuitDir_ + "/" + Settings.transcriptExprFile_ + Settings.suffix_ + ".txt.gz";
-		transcriptExpr_ = new ExpressionMatrix(filename);
+		transcriptExpr_ = loadExpr(filename);
+		transcriptExpr_.printInfo();
+		transcriptIndexes_ = dictionary_.addTranscripts(transcriptExpr_.getNodes());
 		setSamples(transcriptExpr_.getSamples());
 	}
 
 	
+	/** Load the global tf---enhancer and enhancer---transcript network */
+	protected void loadEnhancerNet() {
+
+		GcMain.println("\nLoading global tf---enhancer---transcript network...");
+		enhancerNet_ = new GlobalNetwork(dictionary_);
+		String filename = getNetworkFile(Settings.enhancerTranscriptFile_, EdgeFile.ENHANCER_TRANSCRIPT);
+		RunMetrics.Phase phase = metrics_.begin(RunMetrics.LOAD, null, filename);
+		enhancerNet_.loadEnhancerTranscript(filename);
+		phase.end(enhancerNet_.getNumLinesRead(), enhancerNet_.getElementTranscript().getNnz(), enhancerNet_.getNumBytesRead());
+		
+		filename = getNetworkFile(Settings.tfEnhancerFile_, EdgeFile.TF_ELEMENT);
+		phase = metrics_.begin(RunMetrics.LOAD, null, filename);
+		enhancerNet_.loadTfElement(filename);
+		phase.end(enhancerNet_.getNumLinesRead(), enhancerNet_.getElementTf().getNnz(), enhancerNet_.getNumBytesRead());
+		enhancerNet_.printInfo();
+		dictionary_.printInfo();
+	}
+
+	
 	// ----------------------------------------------------------------------------
 
-	/** Set samples, check that they are consistent if they were set before */
-	private void setSamples(String[] samples) {
+	/** Load the given expression matrix (from the cache if Settings.exprCache_ is set), record the load phase */
+	private ExpressionMatrix loadExpr(String filename) {
+		
+		RunMetrics.Phase phase = metrics_.begin(RunMetrics.LOAD, null, filename);
+		ExpressionMatrix expr = new ExpressionMatrix(filename, Settings.exprCache_);
+		phase.end(expr.getNumLinesRead(), expr.getNnz(), expr.getNumBytesRead());
+		return expr;
+	}
+	
+	
+	/** Print the metrics of the run, write the run report to the output directory if Settings.runReport_ is set */
+	private void writeReport(String outDir) {
+		
+		metrics_.finish();
+		metrics_.printInfo();
+		if (Settings.runReport_)
+			metrics_.write(outDir + "/" + REPORT_FILENAME);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
 
-		if (samples_ == null) {
-			samples_ = samples;
-		} else {
+	/** 
+	 * The archive with the given prefix if Settings.archiveOutput_ is set, null otherwise. In incremental mode, the
+	 * entries of the samples that are up to date are copied from the previous archive
+	 */
+	private CircuitArchive openArchive(String prefix) {
+		
+		return Settings.archiveOutput_ ? new CircuitArchive(prefix + CircuitArchive.EXTENSION, Settings.incremental_) : null;
+	}
+	
+	
+	/** The build manifest of the output directory if Settings.incremental_ is set (null otherwise), with the fingerprints of this run */
+	private BuildManifest openManifest(String outDir, String[] networkPrefixes, ExpressionMatrix[] matrices) {
+		
+		if (!Settings.incremental_)
+			return null;
+		
+		// The text network files (or the binary files if there are no text files)
+		String[] files = new String[networkPrefixes.length];
+		for (int i=0; i<files.length; i++) {
+			files[i] = getTextNetworkFile(networkPrefixes[i]);
+			if (!new File(files[i]).exists())
+				files[i] = EdgeFile.getBinaryFilename(files[i]);
+		}
+		
+		BuildManifest manifest = new BuildManifest(outDir + "/" + BuildManifest.FILENAME);
+		manifest.setOptions("maxTfsPerGene=" + Settings.maxTfsPerGene_ + ",minEdgeWeight=" + Settings.minEdgeWeight_);
+		manifest.setNetwork(files);
+		manifest.setSamples(samples_, matrices);
+		return manifest;
+	}
+	
+	
+	/** 
+	 * Flags the samples to build: all samples, or in incremental mode (manifest not null) the samples whose
+	 * inputs changed since the last run or whose output (output + "." + sample + ".txt.gz" or archive entry) is missing
+	 */
+	private boolean[] getSamplesToBuild(BuildManifest manifest, CircuitArchive archive, String output) {
+		
+		boolean[] build = new boolean[samples_.length];
+		for (int i=0; i<samples_.length; i++) {
+			if (manifest == null || !manifest.isUpToDate(samples_[i]))
+				build[i] = true;
+			else if (archive != null)
+				build[i] = !archive.hasPrevious(samples_[i]);
+			else
+				build[i] = !new File(output + "." + samples_[i] + ".txt.gz").exists();
+		}
+		
+		if (manifest != null)
+			GcMain.println("\nIncremental build: " + count(build) + " of " + samples_.length + " samples are new or changed, the others are up to date");
+		return build;
+	}
+	
+	
+	/** Copy the archive entries of the samples that were not built and close the archive, write the manifest */
+	private void closeOutput(BuildManifest manifest, CircuitArchive archive, boolean[] build) {
+		
+		if (archive != null) {
 			for (int i=0; i<samples_.length; i++)
-				if (!samples_[i].equals(samples[i]))
-					throw new RuntimeException("Inconsistent samples");
+				if (!build[i])
+					archive.copyPrevious(samples_[i]);
+			archive.close();
 		}
+		if (manifest != null)
+			manifest.write();
+	}
+	
+	
+	/** Number of true values */
+	private static int count(boolean[] x) {
+		
+		int n = 0;
+		for (boolean b : x)
+			if (b)
+				n++;
+		return n;
+	}
+	
+	
+	/** The output of sample i: the gzip file filename + ".gz", or its entry in the archive (if not null) */
+	private FileExport openOutput(CircuitArchive archive, int i, String filename) {
+		
+		if (archive == null)
+			return new FileExport(filename, true);
+		else
+			return archive.openEntry(samples_[i], new File(filename).getName() + ".gz");
 	}
 	
 	
 	// ----------------------------------------------------------------------------
 
-	/** Add elements with expr > 0 to the circuit */
-	private void addActiveElements(int k) {
+	/** 
+	 * The global network file with the given prefix: the text file, or its binary edge file if
+	 * Settings.binaryNetworks_ is set (converted first if it is missing or older than the text file)
+	 */
+	private String getNetworkFile(String prefix, int type) {
 
-		String[] nodeIds = elementExpr_.getNodes();
-		double[] x = elementExpr_.getX().getColumn(k);
-		int N = nodeIds.length;
-		if (N != x.length)
-			throw new RuntimeException("Inconsistent length");
+		String textFile = getTextNetworkFile(prefix);
+		if (!Settings.binaryNetworks_)
+			return textFile;
 		
-		for (int i=0; i<N; i++) {
-			if (x[i] != 0) {
-				Node node = circuit_.addElement(nodeIds[i]);
-				node.setExpr(x[i]);
-			}
-		}
+		String binaryFile = EdgeFile.getBinaryFilename(textFile);
+		File binary = new File(binaryFile);
+		File text = new File(textFile);
+		if (!binary.exists() || (text.exists() && text.lastModified() > binary.lastModified()))
+			EdgeFile.convert(textFile, binaryFile, type);
+		
+		return binaryFile;
+	}
+	
+	
+	/** The text file of the global network with the given prefix */
+	private String getTextNetworkFile(String prefix) {
+		
+		return Settings.circuitDir_ + "/" + prefix + Settings.suffix_ + ".txt";
 	}
 	
 	
-	/** Add transcripts with expr > 0 to the circuit */
-	private void addActiveTranscripts(int k) {
+	// ----------------------------------------------------------------------------
 
-		String[] nodeIds = transcriptExpr_.getNodes();
-		double[] x = transcriptExpr_.getX().getColumn(k);
-		int N = nodeIds.length;
-		if (N != x.length)
-			throw new RuntimeException("Inconsistent length");
+	/** 
+	 * Wire and write the circuits of the flagged samples, in blocks of at most Settings.sampleBlockSize_
+	 * consecutive samples, using Settings.numThreads_ threads. Finished circuits are handed to a pipeline
+	 * of Settings.writerThreads_ threads, so that wiring and writing overlap
+	 */
+	private void wireSamples(boolean[] build, final SampleTask task) {
 		
-		for (int i=0; i<N; i++) {
-			if (x[i] != 0) {
-				Node node = circuit_.addTranscript(nodeIds[i]);
-				node.setExpr(x[i]);
-			}
+		final int blockSize = Settings.sampleBlockSize_;
+		if (blockSize < 1)
+			throw new IllegalArgumentException("sampleBlockSize must be >= 1");
+		
+		// Blocks [first, end) of consecutive samples to build
+		ArrayList<int[]> blocks = new ArrayList<int[]>();
+		for (int i=0; i<samples_.length; i++) {
+			if (!build[i])
+				continue;
+			int[] last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+			if (last != null && last[1] == i && i - last[0] < blockSize)
+				last[1]++;
+			else
+				blocks.add(new int[] { i, i+1 });
+		}
+		int numBlocks = blocks.size();
+		int numThreads = Math.min(Settings.getNumThreads(), numBlocks);
+		GcMain.println("\nWiring circuits for " + count(build) + " samples (" + numThreads + " threads, " + blockSize + " samples per block)...");
+		
+		// Progress of the wiring, the cost of a sample is estimated by its number of active elements
+		double[] weights = new double[samples_.length];
+		for (int i=0; i<samples_.length; i++)
+			if (build[i])
+				weights[i] = 1 + elementExpr_.colEnd(i) - elementExpr_.colStart(i);
+		final ProgressMonitor progress = new ProgressMonitor(count(build), weights, numThreads, 1000L*Settings.progressInterval_);
+		progress.start();
+		
+		final WritePipeline pipeline = new WritePipeline(Settings.writerThreads_, Settings.writeQueueSize_);
+		if (numThreads <= 1) {
+			for (int[] block : blocks)
+				wireBlock(task, block[0], block[1], pipeline, progress);
+			progress.done();
+			closePipeline(pipeline);
+			return;
 		}
+		
+		// Each block is wired in its own circuits, the expression matrices and global networks are only read
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(numBlocks);
+		for (final int[] block : blocks) {
+			futures.add(executor.submit(new Runnable() {
+				public void run() {
+					wireBlock(task, block[0], block[1], pipeline, progress);
+				}
+			}));
+		}
+		executor.shutdown();
+		
+		try {
+			// Propagate the first exception (if any)
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			GcMain.error(e);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			GcMain.error(e);
+		}
+		progress.done();
+		closePipeline(pipeline);
 	}
 
 	
+	/** 
+	 * Wire the circuits of samples first, ..., end-1, report them to the progress monitor and submit them to
+	 * the write pipeline (blocks if it is full)
+	 */
+	private void wireBlock(final SampleTask task, int first, int end, WritePipeline pipeline, ProgressMonitor progress) {
+		
+		String samples = samples_[first];
+		for (int i=first+1; i<end; i++)
+			samples += "+" + samples_[i];
+		
+		long t0 = System.nanoTime();
+		RunMetrics.Phase phase = metrics_.begin(RunMetrics.WIRE, samples, null);
+		Object event = CircuitEvents.get().beginSample();
+		Circuit[] circuits = task.wire(first, end);
+		int numTfs = 0;
+		int numElements = 0;
+		int numGenes = 0;
+		long numEdges = 0;
+		for (Circuit circuit : circuits) {
+			numTfs += circuit.getTfList().size();
+			numElements += circuit.getElementList().size();
+			numGenes += circuit.getGeneList().size();
+			numEdges += circuit.getNumEdges();
+		}
+		CircuitEvents.get().endSample(event, samples, numTfs, numElements, numGenes, numEdges);
+		phase.end(numGenes, numEdges, 0);
+		progress.completed(first, end, numEdges, System.nanoTime() - t0);
+		
+		for (int s=0; s<circuits.length; s++) {
+			final int i = first + s;
+			final Circuit circuit = circuits[s];
+			pipeline.submit(new Runnable() {
+				public void run() {
+					task.write(i, circuit);
+				}
+			});
+			circuits[s] = null;
+		}
+	}
+	
+	
+	/** Wait until all circuits are written, print the metrics of the write pipeline */
+	private void closePipeline(WritePipeline pipeline) {
+		
+		try {
+			pipeline.close();
+		} catch (RuntimeException e) {
+			GcMain.error(e);
+		}
+		pipeline.printInfo();
+	}
+	
+	
 	// ----------------------------------------------------------------------------
 
-	/** promoter---transcript---gene (the elements and their expression have to be preloaded) */
-	private void loadPromoterTranscript(String filename) {
-
-		// Open the file
-		FileParser parser = new FileParser(filename, true);
-		// Skip header
-		parser.skipLines(1);
+	/** 
+	 * Build and return the circuits of samples first, ..., end-1 (thread safe). A single sample is
+	 * wired with the MaxTimesEngine, several samples at once with the BlockMaxTimesEngine.
+	 * @param net The global network
+	 * @param enhancers Only use active transcripts and set the element inputs of the genes (enhancers),
+	 * otherwise all transcripts are used and the element expression is the weight (promoters)
+	 */
+	private Circuit[] wire(GlobalNetwork net, boolean enhancers, int first, int end) {
 		
-		while (true) {
-			String[] nextLine = parser.readLine();
-			if (nextLine == null)
-				break;
-			
-			String elementId = nextLine[0];
-			String transcriptId = nextLine[1];
-			String geneId = nextLine[3];
-			
-			// Add the links and nodes if this element is active
-			RegElement element = circuit_.getElement(elementId);
-			if (element != null) {
-				// Create / get the nodes
-				Transcript transcript = circuit_.addTranscript(transcriptId);
-				Gene gene = circuit_.addGene(geneId);
-				// Add the links
-				gene.add(transcript);
-				transcript.add(element, 1);
-			}
+		// Expression of the samples, node-major (0 for inactive nodes), in the buffers of this thread
+		double[][] buffers = exprBuffers_.get();
+		double[] elementExpr = getBlockExpr(elementExpr_, elementIndexes_, dictionary_.getNumElements(), first, end, buffers, 0);
+		double[] transcriptExpr = null;
+		try {
+			if (enhancers)
+				transcriptExpr = getBlockExpr(transcriptExpr_, transcriptIndexes_, dictionary_.getNumTranscripts(), first, end, buffers, 1);
+			return wire(net, enhancers, first, end, elementExpr, transcriptExpr);
+		} finally {
+			clearBlockExpr(elementExpr, elementExpr_, elementIndexes_, first, end);
+			if (transcriptExpr != null)
+				clearBlockExpr(transcriptExpr, transcriptExpr_, transcriptIndexes_, first, end);
 		}
-		parser.close();
 	}
+	
+	
+	/** Build and return the circuits of samples first, ..., end-1 given their element and transcript expression (see getBlockExpr()) */
+	private Circuit[] wire(GlobalNetwork net, boolean enhancers, int first, int end, double[] elementExpr, double[] transcriptExpr) {
+		
+		int B = end - first;
+		
+		// Create circuits, add only elements with expression > 0, with their tf---element links
+		Circuit[] circuits = new Circuit[B];
+		final CircuitSink[] sinks = new CircuitSink[B];
+		int[] activeElements = null;
+		for (int s=0; s<B; s++) {
+			circuits[s] = new Circuit(dictionary_);
+			activeElements = addActiveElements(circuits[s], net, first + s);
+			sinks[s] = new CircuitSink(circuits[s], enhancers);
+		}
+		
+		//GcMain.println("\nLoaded:");
+		//circuits[0].printInfo();
+		
+		// tf---element---transcript---gene (only for active elements and transcripts)
+		if (B == 1) {
+			MaxTimesEngine engine = new MaxTimesEngine(net);
+			engine.setMinWeight(Settings.minEdgeWeight_);
+			engine.propagate(activeElements, elementExpr, transcriptExpr, sinks[0]);
+		} else {
+			BlockKernel kernel = BlockKernel.getKernel(Settings.simdKernels_);
+			new BlockMaxTimesEngine(net, B, kernel).propagate(elementExpr, transcriptExpr, B, new BlockMaxTimesEngine.BlockSink() {
+				public void gene(int s, int gene, IntInputs tfInputs, IntInputs elementInputs) {
+					sinks[s].gene(gene, tfInputs, elementInputs);
+				}
+			});
+		}
+		
+		// Weight tf---element by element expression
+		for (Circuit circuit : circuits)
+			for (RegElement element : circuit.getElementList())
+				element.getTfInputs().multiply(element.getExpr());
+		
+		return circuits;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
 
-
-	/** enhancer---transcript---gene (the elements and their expression have to be preloaded) */
-	private void loadEnhancerTranscript(String filename) {
-
-		// Open the file
-		FileParser parser = new FileParser(filename, true);
-		// Skip header
-		parser.skipLines(1);
+	/** Convert the selected primitive tf inputs (tf indexes, positions selected[0, n)) to inputs */
+	private Inputs toTfInputs(IntInputs in, int[] selected, int n) {
 		
-		while (true) {
-			String[] nextLine = parser.readLine();
-			if (nextLine == null)
-				break;
+		Inputs out = new Inputs(n);
+		for (int i=0; i<n; i++)
+			out.add(dictionary_.getTf(in.getNode(selected[i])), in.getWeight(selected[i]));
+		return out;
+	}
+	
+	
+	/** Convert the selected primitive element inputs (element indexes, positions selected[0, n)) to inputs */
+	private Inputs toElementInputs(Circuit circuit, IntInputs in, int[] selected, int n) {
 		
-			String elementId = nextLine[0];
-			String transcriptId = nextLine[1];
-			String weightStr = nextLine[3];
-			String geneId = nextLine[4];
+		Inputs out = new Inputs(n);
+		for (int i=0; i<n; i++)
+			out.add(circuit.getElement(in.getNode(selected[i])), in.getWeight(selected[i]));
+		return out;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
 
-			// Add the links and nodes if they don't exist yet
-			RegElement element = circuit_.getElement(elementId);
-			Transcript transcript = circuit_.getTranscript(transcriptId);
-			if (element != null && transcript != null) {
-				// Create / get the nodes
-				Gene gene = circuit_.addGene(geneId);
-				// Add the links
-				gene.add(transcript);
-				transcript.add(element, Double.parseDouble(weightStr));
-			}
+	/** Set samples, check that they are consistent if they were set before */
+	private void setSamples(String[] samples) {
+
+		if (samples_ == null) {
+			samples_ = samples;
+		} else {
+			for (int i=0; i<samples_.length; i++)
+				if (!samples_[i].equals(samples[i]))
+					throw new RuntimeException("Inconsistent samples");
 		}
-		parser.close();
 	}
+	
+	
+	// ----------------------------------------------------------------------------
 
+	/** 
+	 * Get the expression of samples first, ..., end-1, node-major: expr[node*B + s] is the
+	 * expression of the node with the given dictionary index in sample first+s (0 for inactive nodes).
+	 * The array is buffers[slot] (reallocated if it is too small), which must be all zeros: only the
+	 * non-zero entries are set, clearBlockExpr() resets them when the block is done.
+	 */
+	private double[] getBlockExpr(ExpressionMatrix matrix, int[] indexes, int numNodes, int first, int end, double[][] buffers, int slot) {
+
+		int B = end - first;
+		if (buffers[slot].length < numNodes * B)
+			buffers[slot] = new double[numNodes * B];
+		double[] expr = buffers[slot];
+		
+		if (indexes.length != matrix.getNumNodes())
+			throw new RuntimeException("Inconsistent length");
+		
+		// Only the non-zero entries of each sample
+		for (int s=0; s<B; s++)
+			for (int p=matrix.colStart(first + s); p<matrix.colEnd(first + s); p++)
+				expr[indexes[matrix.row(p)]*B + s] = matrix.value(p);
+		
+		return expr;
+	}
+	
+	
+	/** Reset the entries set by getBlockExpr() to zero, so that the buffer can be reused */
+	private void clearBlockExpr(double[] expr, ExpressionMatrix matrix, int[] indexes, int first, int end) {
+		
+		int B = end - first;
+		for (int s=0; s<B; s++)
+			for (int p=matrix.colStart(first + s); p<matrix.colEnd(first + s); p++)
+				expr[indexes[matrix.row(p)]*B + s] = 0;
+	}
+	
 	
 	// ----------------------------------------------------------------------------
 
-	/** tf---promoter---gene */
-	private void loadTfElement(String filename) {
-
-		// Open the file
-		FileParser parser = new FileParser(filename, true);
-		// Skip header
-		parser.skipLines(1);
-		
-		while (true) {
-			String[] nextLine = parser.readLine();
-			if (nextLine == null)
-				break;
-
-			RegElement element = circuit_.getElement(nextLine[1]); 
-			if (element != null) {
-				// Add the tf---element link and nodes if they dont' exist yet
-				double motifConf = Double.parseDouble(nextLine[2]) + 0.1;
-				if (motifConf < 0.1 || motifConf > 1.0)
-					throw new IllegalArgumentException("Motif score must be in (0.1, 1.0)");
-
-				circuit_.addTfElement(nextLine[0], element, motifConf);
-			}
+	/** 
+	 * Add the elements that are active in sample i and their tf---element links to the circuit.
+	 * Return the indexes of the active elements.
+	 */
+	private int[] addActiveElements(Circuit circuit, GlobalNetwork net, int i) {
+
+		CsrMatrix elementTf = net.getElementTf();
+		int[] active = new int[elementExpr_.colEnd(i) - elementExpr_.colStart(i)];
+		int numActive = 0;
+		
+		// Only the non-zero entries of sample i
+		double minWeight = Settings.minEdgeWeight_;
+		for (int p=elementExpr_.colStart(i); p<elementExpr_.colEnd(i); p++) {
+			int e = elementIndexes_[elementExpr_.row(p)];
+			double x = elementExpr_.value(p);
+			
+			RegElement element = circuit.addElement(e);
+			element.setExpr(x);
+			active[numActive++] = e;
+			
+			// Add the tf---element links and tfs if they dont' exist yet (skip links whose final weight conf*x is below the min weight)
+			for (int k=elementTf.rowStart(e); k<elementTf.rowEnd(e); k++)
+				if (minWeight <= 0 || elementTf.value(k) * x >= minWeight)
+					circuit.addTfElement(elementTf.col(k), element, elementTf.value(k));
 		}
-		parser.close();
+		return active;
 	}
 
 
@@ -420,5 +788,74 @@ public class CircuitBuilder {
 	// GETTERS AND SETTERS
 
 	public Circuit getCircuit() { return circuit_; }
+	public String[] getSamples() { return samples_; }
+	
+	
+	// ============================================================================
+	// CIRCUIT SINK
+	
+	/** Adds the genes computed by the MaxTimesEngine to a circuit */
+	private class CircuitSink implements MaxTimesEngine.GeneSink {
+		
+		/** The circuit */
+		private Circuit circuit_ = null;
+		/** Set the element inputs of the genes (enhancers) */
+		private boolean setElementInputs_ = false;
+		/** Max number of tf inputs per gene, the largest weights are kept (0 = all) */
+		private int maxTfs_ = 0;
+		/** Inputs below this weight are dropped (0 = none) */
+		private double minWeight_ = 0;
+		/** Positions of the selected inputs (reused) */
+		private int[] selected_ = new int[16];
+		/** The profiling events */
+		private CircuitEvents events_ = CircuitEvents.get();
+		
+		/** Constructor */
+		public CircuitSink(Circuit circuit, boolean setElementInputs) {
+			circuit_ = circuit;
+			setElementInputs_ = setElementInputs;
+			maxTfs_ = Settings.maxTfsPerGene_;
+			minWeight_ = Settings.minEdgeWeight_;
+		}
+		
+		/** Add the gene and its inputs to the circuit (pruned, genes without inputs left are skipped) */
+		public void gene(int gene, IntInputs tfInputs, IntInputs elementInputs) {
+			
+			Object event = events_.beginGene();
+			if (selected_.length < Math.max(tfInputs.size(), elementInputs.size()))
+				selected_ = new int[2*Math.max(tfInputs.size(), elementInputs.size())];
+			
+			int n = tfInputs.select(maxTfs_, minWeight_, selected_);
+			Inputs tfs = toTfInputs(tfInputs, selected_, n);
+			Inputs elements = null;
+			if (setElementInputs_) {
+				n = elementInputs.select(0, minWeight_, selected_);
+				elements = toElementInputs(circuit_, elementInputs, selected_, n);
+			}
+			if ((maxTfs_ > 0 || minWeight_ > 0) && tfs.getWeights().isEmpty() && (elements == null || elements.getWeights().isEmpty())) {
+				events_.endGene(event, gene, tfInputs.size(), elementInputs.size(), 0);
+				return;
+			}
+			
+			Gene g = circuit_.addGene(gene);
+			g.setTfInputs(tfs);
+			if (setElementInputs_)
+				g.setEnhancerInputs(elements);
+			events_.endGene(event, gene, tfInputs.size(), elementInputs.size(), tfs.getWeights().size());
+		}
+	}
+	
+	
+	// ============================================================================
+	// SAMPLE TASK
+	
+	/** Wire and write the circuits of the samples */
+	private interface SampleTask {
+		
+		/** Build the circuits of samples first, ..., end-1 */
+		public Circuit[] wire(int first, int end);
+		/** Write the circuit of sample i */
+		public void write(int i, Circuit circuit);
+	}
 	
 }
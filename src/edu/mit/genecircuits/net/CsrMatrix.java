@@ -0,0 +1,217 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable sparse matrix in compressed sparse row (CSR) format. The entries of row r are
+ * at positions rowStart(r) <= k < rowEnd(r), sorted by column. Rows beyond getNumRows()
+ * are empty (nodes that were added to the dictionary after the matrix was built).
+ */
+public class CsrMatrix {
+
+	/** Number of rows */
+	private int numRows_ = 0;
+	/** Number of columns */
+	private int numCols_ = 0;
+	/** Start of each row in cols_ and values_ (length numRows_+1) */
+	private int[] rowPtr_ = null;
+	/** Column of each entry */
+	private int[] cols_ = null;
+	/** Value of each entry */
+	private double[] values_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor, from the CSR arrays */
+	public CsrMatrix(int numRows, int numCols, int[] rowPtr, int[] cols, double[] values) {
+
+		numRows_ = numRows;
+		numCols_ = numCols;
+		rowPtr_ = rowPtr;
+		cols_ = cols;
+		values_ = values;
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Return the transpose (the entries of each row are sorted by column) */
+	public CsrMatrix transpose() {
+
+		int nnz = getNnz();
+		int[] rowPtr = new int[numCols_ + 1];
+		int[] cols = new int[nnz];
+		double[] values = new double[nnz];
+		
+		// Count entries per column
+		for (int k=0; k<nnz; k++)
+			rowPtr[cols_[k] + 1]++;
+		for (int c=0; c<numCols_; c++)
+			rowPtr[c+1] += rowPtr[c];
+		
+		// Scanning rows in order keeps the transposed rows sorted
+		int[] next = Arrays.copyOf(rowPtr, numCols_);
+		for (int r=0; r<numRows_; r++) {
+			for (int k=rowPtr_[r]; k<rowPtr_[r+1]; k++) {
+				int pos = next[cols_[k]]++;
+				cols[pos] = r;
+				values[pos] = values_[k];
+			}
+		}
+		return new CsrMatrix(numCols_, numRows_, rowPtr, cols, values);
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Get the value at (row, col), 0 if there is no entry */
+	public double get(int row, int col) {
+		
+		int k = Arrays.binarySearch(cols_, rowStart(row), rowEnd(row), col);
+		return k < 0 ? 0 : values_[k];
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** Position of the first entry of the given row */
+	public int rowStart(int row) { return row < numRows_ ? rowPtr_[row] : 0; }
+	/** Position after the last entry of the given row */
+	public int rowEnd(int row) { return row < numRows_ ? rowPtr_[row+1] : 0; }
+	
+	/** Column of the entry at position k */
+	public int col(int k) { return cols_[k]; }
+	/** Value of the entry at position k */
+	public double value(int k) { return values_[k]; }
+	
+	public int getNumRows() { return numRows_; }
+	public int getNumCols() { return numCols_; }
+	public int getNnz() { return rowPtr_[numRows_]; }
+	
+	
+	// ============================================================================
+	// BUILDER
+	
+	/** 
+	 * Collects entries in coordinate format (any order) and builds the CSR matrix. If the
+	 * same entry is added several times, the max value is kept.
+	 */
+	public static class Builder {
+		
+		/** Row of each entry */
+		private int[] rows_ = new int[1024];
+		/** Column of each entry */
+		private int[] cols_ = new int[1024];
+		/** Value of each entry */
+		private double[] values_ = new double[1024];
+		/** Number of entries */
+		private int size_ = 0;
+		
+		/** Add an entry */
+		public void add(int row, int col, double value) {
+			
+			if (size_ == rows_.length) {
+				rows_ = Arrays.copyOf(rows_, 2*size_);
+				cols_ = Arrays.copyOf(cols_, 2*size_);
+				values_ = Arrays.copyOf(values_, 2*size_);
+			}
+			rows_[size_] = row;
+			cols_[size_] = col;
+			values_[size_] = value;
+			size_++;
+		}
+		
+		/** Build the matrix with the given dimensions */
+		public CsrMatrix build(int numRows, int numCols) {
+			
+			// Counting sort by row
+			int[] rowPtr = new int[numRows + 1];
+			for (int k=0; k<size_; k++)
+				rowPtr[rows_[k] + 1]++;
+			for (int r=0; r<numRows; r++)
+				rowPtr[r+1] += rowPtr[r];
+			
+			int[] next = Arrays.copyOf(rowPtr, numRows);
+			int[] cols = new int[size_];
+			double[] values = new double[size_];
+			for (int k=0; k<size_; k++) {
+				int pos = next[rows_[k]]++;
+				cols[pos] = cols_[k];
+				values[pos] = values_[k];
+			}
+			
+			// Sort each row by column and merge duplicates (max), compacting in place
+			int nnz = 0;
+			for (int r=0; r<numRows; r++) {
+				int start = rowPtr[r];
+				int end = rowPtr[r+1];
+				sort(cols, values, start, end);
+				
+				rowPtr[r] = nnz;
+				for (int k=start; k<end; k++) {
+					if (nnz > rowPtr[r] && cols[nnz-1] == cols[k]) {
+						if (values[k] > values[nnz-1])
+							values[nnz-1] = values[k];
+					} else {
+						cols[nnz] = cols[k];
+						values[nnz] = values[k];
+						nnz++;
+					}
+				}
+			}
+			rowPtr[numRows] = nnz;
+			
+			return new CsrMatrix(numRows, numCols, rowPtr, Arrays.copyOf(cols, nnz), Arrays.copyOf(values, nnz));
+		}
+		
+		/** Sort the entries in [start, end) by column (insertion sort, rows are short) */
+		private static void sort(int[] cols, double[] values, int start, int end) {
+			
+			for (int i=start+1; i<end; i++) {
+				int c = cols[i];
+				double v = values[i];
+				int j = i - 1;
+				while (j >= start && cols[j] > c) {
+					cols[j+1] = cols[j];
+					values[j+1] = values[j];
+					j--;
+				}
+				cols[j+1] = c;
+				values[j+1] = v;
+			}
+		}
+		
+		/** Number of entries added so far */
+		public int size() { return size_; }
+	}
+	
+}
@@ -0,0 +1,286 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Binary parse cache of a global network file (tf---element, promoter---transcript or
+ * enhancer---transcript). Layout (little endian, see BinaryFiles): a header with the type, the
+ * id sections (source, target and, for element---transcript files, gene ids, in order of first
+ * appearance in the text file), then the edge columns in the order of the text file: source and
+ * target (and gene) as int indexes into the id sections, and the weight as a double.
+ * 
+ * The file saves the parsing of the text and the id lookups per line, not memory: the columns
+ * are read into heap arrays, from which GlobalNetwork builds its CSR matrices (the indexes of the
+ * file are local to it, the matrices use the NodeDictionary indexes, which depend on the files
+ * loaded before). Weights are the values the text loaders use: the motif score (tf---element),
+ * 1 (promoter---transcript) or the distance weight (enhancer---transcript).
+ */
+public class EdgeFile {
+
+	/** tf---element file (columns: tf, element, motif score) */
+	public static final int TF_ELEMENT = 0;
+	/** promoter---transcript file (columns: promoter, transcript, distance, gene) */
+	public static final int PROMOTER_TRANSCRIPT = 1;
+	/** enhancer---transcript file (columns: enhancer, transcript, distance, weight, gene) */
+	public static final int ENHANCER_TRANSCRIPT = 2;
+	
+	/** Extension of the binary files */
+	public static final String EXTENSION = ".bin";
+	
+	/** Identifies edge files ("GCNE") */
+	private static final int MAGIC = 0x47434E45;
+	/** Format version */
+	private static final int VERSION = 1;
+	
+	/** The type of edge file */
+	private int type_ = -1;
+	/** The ids of each section (source, target, gene) */
+	private String[][] ids_ = null;
+	/** Number of edges */
+	private int numEdges_ = 0;
+	/** Source of each edge */
+	private int[] sources_ = null;
+	/** Target of each edge */
+	private int[] targets_ = null;
+	/** Gene of each edge (null for tf---element files) */
+	private int[] genes_ = null;
+	/** Weight of each edge */
+	private double[] weights_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Read a binary edge file */
+	public EdgeFile(String filename) {
+
+		RandomAccessFile file = null;
+		try {
+			GcMain.println("Reading file: " + filename);
+			file = new RandomAccessFile(filename, "r");
+			FileChannel channel = file.getChannel();
+			
+			// Header and id sections
+			ByteBuffer header = BinaryFiles.map(channel, 0, Math.min(channel.size(), BinaryFiles.MAX_MAP));
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				throw new RuntimeException("Not a binary edge file (version " + VERSION + "): " + filename);
+			type_ = header.getInt();
+			ids_ = new String[header.getInt()][];
+			for (int i=0; i<ids_.length; i++)
+				ids_[i] = BinaryFiles.getStrings(header, header.getInt());
+			numEdges_ = header.getInt();
+			
+			// Edge columns
+			long position = header.position();
+			sources_ = new int[numEdges_];
+			position = BinaryFiles.getInts(channel, position, sources_);
+			targets_ = new int[numEdges_];
+			position = BinaryFiles.getInts(channel, position, targets_);
+			if (ids_.length > 2) {
+				genes_ = new int[numEdges_];
+				position = BinaryFiles.getInts(channel, position, genes_);
+			}
+			weights_ = new double[numEdges_];
+			position = BinaryFiles.getDoubles(channel, position, weights_);
+			if (position != channel.size())
+				throw new RuntimeException("Truncated binary edge file: " + filename);
+			
+		} catch (IOException e) {
+			GcMain.error(e);
+		} finally {
+			BinaryFiles.close(file);
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Convert a text edge file of the given type to the binary format */
+	public static void convert(String textFile, String binaryFile, int type) {
+		
+		int sourceCol = 0;
+		int targetCol = 1;
+		int geneCol = type == TF_ELEMENT ? -1 : (type == PROMOTER_TRANSCRIPT ? 3 : 4);
+		int weightCol = type == TF_ELEMENT ? 2 : (type == PROMOTER_TRANSCRIPT ? -1 : 3);
+		if (type < TF_ELEMENT || type > ENHANCER_TRANSCRIPT)
+			throw new IllegalArgumentException("Unknown edge file type: " + type);
+		
+		// Ids in order of first appearance, one table per section
+		IdTable[] tables = new IdTable[geneCol < 0 ? 2 : 3];
+		for (int i=0; i<tables.length; i++)
+			tables[i] = new IdTable();
+		
+		int[] sources = new int[1024];
+		int[] targets = new int[1024];
+		int[] genes = new int[1024];
+		double[] weights = new double[1024];
+		int numEdges = 0;
+		
+		FileParser parser = new FileParser(textFile);
+		// Skip header
+		parser.skipLines(1);
+		
+		while (parser.nextRecord()) {
+			if (numEdges == sources.length) {
+				sources = Arrays.copyOf(sources, 2*numEdges);
+				targets = Arrays.copyOf(targets, 2*numEdges);
+				genes = Arrays.copyOf(genes, 2*numEdges);
+				weights = Arrays.copyOf(weights, 2*numEdges);
+			}
+			sources[numEdges] = tables[0].add(parser.field(sourceCol));
+			targets[numEdges] = tables[1].add(parser.field(targetCol));
+			if (geneCol >= 0)
+				genes[numEdges] = tables[2].add(parser.field(geneCol));
+			weights[numEdges] = weightCol < 0 ? 1 : parser.doubleField(weightCol);
+			numEdges++;
+		}
+		parser.close();
+		
+		// Write to a unique temporary file, rename when complete
+		File binary = new File(binaryFile);
+		File tmp = null;
+		RandomAccessFile file = null;
+		try {
+			tmp = BinaryFiles.createTempFile(binary);
+			file = new RandomAccessFile(tmp, "rw");
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = BinaryFiles.allocate();
+			
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(type);
+			buffer.putInt(tables.length);
+			for (IdTable table : tables) {
+				BinaryFiles.putInt(channel, buffer, table.size());
+				BinaryFiles.putStrings(channel, buffer, table.getIds());
+			}
+			BinaryFiles.putInt(channel, buffer, numEdges);
+			
+			for (int k=0; k<numEdges; k++)
+				BinaryFiles.putInt(channel, buffer, sources[k]);
+			for (int k=0; k<numEdges; k++)
+				BinaryFiles.putInt(channel, buffer, targets[k]);
+			if (geneCol >= 0)
+				for (int k=0; k<numEdges; k++)
+					BinaryFiles.putInt(channel, buffer, genes[k]);
+			for (int k=0; k<numEdges; k++)
+				BinaryFiles.putDouble(channel, buffer, weights[k]);
+			BinaryFiles.flush(channel, buffer);
+			file.close();
+			file = null;
+			
+			// Concurrent conversions of the same file each replace it with a complete file
+			BinaryFiles.replace(tmp, binary);
+			GcMain.println("Writing file: " + binaryFile);
+			
+		} catch (IOException e) {
+			BinaryFiles.close(file);
+			if (tmp != null)
+				tmp.delete();
+			GcMain.error(e);
+		}
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Convert a text edge file to the binary format.
+	 * Usage: EdgeFile <tf---element | promoter---transcript | enhancer---transcript> <text file> [binary file]
+	 */
+	public static void main(String[] args) {
+		
+		if (args.length < 2) {
+			System.out.println("Usage: EdgeFile <tf---element | promoter---transcript | enhancer---transcript> <text file> [binary file]");
+			return;
+		}
+		
+		int type = -1;
+		if (args[0].equals("tf---element"))
+			type = TF_ELEMENT;
+		else if (args[0].equals("promoter---transcript"))
+			type = PROMOTER_TRANSCRIPT;
+		else if (args[0].equals("enhancer---transcript"))
+			type = ENHANCER_TRANSCRIPT;
+		else
+			throw new IllegalArgumentException("Unknown edge file type: " + args[0]);
+		
+		convert(args[1], args.length > 2 ? args[2] : getBinaryFilename(args[1]), type);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** The binary file of a text file (the .txt extension is replaced) */
+	public static String getBinaryFilename(String textFile) {
+		
+		if (textFile.endsWith(".txt"))
+			textFile = textFile.substring(0, textFile.length() - 4);
+		return textFile + EXTENSION;
+	}
+	
+	
+	/** True if the file is a binary edge file (by extension) */
+	public static boolean isBinary(String filename) {
+		
+		return filename.endsWith(EXTENSION);
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	public int getType() { return type_; }
+	public int getNumEdges() { return numEdges_; }
+	
+	/** The source ids */
+	public String[] getSourceIds() { return ids_[0]; }
+	/** The target ids */
+	public String[] getTargetIds() { return ids_[1]; }
+	/** The gene ids (null for tf---element files) */
+	public String[] getGeneIds() { return ids_.length > 2 ? ids_[2] : null; }
+	
+	/** Source of edge k (index in getSourceIds()) */
+	public int source(int k) { return sources_[k]; }
+	/** Target of edge k (index in getTargetIds()) */
+	public int target(int k) { return targets_[k]; }
+	/** Gene of edge k (index in getGeneIds()) */
+	public int gene(int k) { return genes_[k]; }
+	/** Weight of edge k */
+	public double weight(int k) { return weights_[k]; }
+	
+}
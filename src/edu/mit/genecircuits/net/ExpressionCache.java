@@ -0,0 +1,200 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Binary companion of an expression matrix file (filename + ".bin"), written on first load
+ * and read by later runs instead of parsing the text file. Layout (little endian): a header
+ * with the source size, modification time and checksum of its first megabyte, the dimensions,
+ * the sample and node ids, then the column-compressed data (column pointers, rows, values).
+ * The cache is ignored (and rewritten) if the source file changed.
+ * 
+ * The data sections are mapped and copied into the heap arrays of the matrix (which the
+ * engines index directly), so the cache saves the parsing, not the memory of the matrix.
+ */
+public class ExpressionCache {
+
+	/** Identifies expression cache files ("GCEX") */
+	private static final int MAGIC = 0x47434558;
+	/** Format version */
+	private static final int VERSION = 1;
+	/** Number of bytes of the source file included in the checksum */
+	private static final int CHECKSUM_BYTES = 1 << 20;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+
+	/** The cache file of the given expression file */
+	public static String getCacheFilename(String filename) {
+		
+		return filename + ".bin";
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Load the matrix from the cache of the given expression file. Return false if there is no
+	 * valid cache (missing, stale or unreadable), in which case the matrix is not modified.
+	 */
+	public static boolean read(ExpressionMatrix matrix, String filename) {
+		
+		File cache = new File(getCacheFilename(filename));
+		if (!cache.exists())
+			return false;
+		
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(cache, "r");
+			FileChannel channel = file.getChannel();
+			
+			// The header is small, map it entirely
+			ByteBuffer header = BinaryFiles.map(channel, 0, Math.min(channel.size(), BinaryFiles.MAX_MAP));
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				return false;
+			File source = new File(filename);
+			if (header.getLong() != source.length() || header.getLong() != source.lastModified() || header.getLong() != checksum(filename))
+				return false;
+			
+			int numSamples = header.getInt();
+			int numNodes = header.getInt();
+			int nnz = header.getInt();
+			String[] samples = BinaryFiles.getStrings(header, numSamples);
+			String[] nodes = BinaryFiles.getStrings(header, numNodes);
+			
+			// Column-compressed data, copied to the heap
+			long position = header.position();
+			int[] colPtr = new int[numSamples + 1];
+			position = BinaryFiles.getInts(channel, position, colPtr);
+			int[] rows = new int[nnz];
+			position = BinaryFiles.getInts(channel, position, rows);
+			double[] values = new double[nnz];
+			position = BinaryFiles.getDoubles(channel, position, values);
+			if (position != channel.size() || colPtr[numSamples] != nnz)
+				return false;
+			
+			matrix.set(samples, nodes, new CsrMatrix(numSamples, numNodes, colPtr, rows, values));
+			return true;
+			
+		} catch (Exception e) {
+			GcMain.println("Ignoring unreadable expression cache " + cache.getPath() + ": " + e.getMessage());
+			return false;
+		} finally {
+			BinaryFiles.close(file);
+		}
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Write the cache of the given expression file (failures are reported, but not fatal) */
+	public static void write(ExpressionMatrix matrix, String filename) {
+		
+		File cache = new File(getCacheFilename(filename));
+		File tmp = null;
+		RandomAccessFile file = null;
+		
+		try {
+			tmp = BinaryFiles.createTempFile(cache);
+			file = new RandomAccessFile(tmp, "rw");
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = BinaryFiles.allocate();
+			
+			// Header
+			File source = new File(filename);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(source.length());
+			buffer.putLong(source.lastModified());
+			buffer.putLong(checksum(filename));
+			buffer.putInt(matrix.getNumSamples());
+			buffer.putInt(matrix.getNumNodes());
+			buffer.putInt(matrix.getNnz());
+			BinaryFiles.putStrings(channel, buffer, matrix.getSamples());
+			BinaryFiles.putStrings(channel, buffer, matrix.getNodes());
+			
+			// Column-compressed data
+			for (int k=0; k<=matrix.getNumSamples(); k++)
+				BinaryFiles.putInt(channel, buffer, k < matrix.getNumSamples() ? matrix.colStart(k) : matrix.getNnz());
+			for (int p=0; p<matrix.getNnz(); p++)
+				BinaryFiles.putInt(channel, buffer, matrix.row(p));
+			for (int p=0; p<matrix.getNnz(); p++)
+				BinaryFiles.putDouble(channel, buffer, matrix.value(p));
+			BinaryFiles.flush(channel, buffer);
+			file.close();
+			file = null;
+			
+			// Replace the previous cache only when complete (atomic, several processes may write it)
+			BinaryFiles.replace(tmp, cache);
+			GcMain.println("Writing file: " + cache.getPath());
+			
+		} catch (Exception e) {
+			GcMain.println("Could not write expression cache " + cache.getPath() + ": " + e.getMessage());
+			BinaryFiles.close(file);
+			if (tmp != null)
+				tmp.delete();
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Checksum (CRC32) of the first CHECKSUM_BYTES of the file */
+	private static long checksum(String filename) throws IOException {
+		
+		CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(filename);
+		try {
+			byte[] bytes = new byte[64 * 1024];
+			int total = 0;
+			while (total < CHECKSUM_BYTES) {
+				int n = in.read(bytes, 0, Math.min(bytes.length, CHECKSUM_BYTES - total));
+				if (n < 0)
+					break;
+				crc.update(bytes, 0, n);
+				total += n;
+			}
+		} finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+
+}
@@ -25,15 +25,19 @@ THE SOFTWARE.
  */
 package edu.mit.genecircuits.net;
 
-
-import org.apache.commons.math3.linear.OpenMapRealMatrix;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.GcMain;
+import edu.mit.genecircuits.GcUtils;
 
 
 
 /**
- * 
+ * Expression matrix (nodes x samples), stored column-compressed (CSC): the non-zero entries
+ * of sample k are at positions colStart(k) <= p < colEnd(k), sorted by node (row).
  */
 public class ExpressionMatrix {
 
@@ -42,8 +46,13 @@ public class ExpressionMatrix {
 	/** The nodes (row names) */
 	private String[] nodes_ = null;
 	
-	/** Sparse matrix */
-	private OpenMapRealMatrix X_ = null;
+	/** The transpose (samples x nodes) in CSR format, i.e., the matrix in CSC format */
+	private CsrMatrix Xt_ = null;
+	
+	/** Bytes read from the file the matrix was loaded from (the text file or the cache) */
+	private long numBytesRead_ = 0;
+	/** Lines parsed from the text file (number of nodes if loaded from the cache) */
+	private long numLinesRead_ = 0;
 	
 	
 	// ============================================================================
@@ -56,49 +65,118 @@ public class ExpressionMatrix {
 	}
 	
 	
+	/** Constructor, load from the binary cache if it is valid, otherwise parse the file and write the cache */
+	public ExpressionMatrix(String filename, boolean useCache) {
+
+		long t0 = System.currentTimeMillis();
+		
+		if (useCache && ExpressionCache.read(this, filename)) {
+			long dt = System.currentTimeMillis() - t0;
+			numBytesRead_ = new File(ExpressionCache.getCacheFilename(filename)).length();
+			numLinesRead_ = getNumNodes();
+			GcMain.println("Reading file: " + ExpressionCache.getCacheFilename(filename));
+			GcMain.println("- " + getNumNodes() + "\trows loaded from cache in " + GcUtils.chronometer(dt));
+			return;
+		}
+		
+		load(filename);
+		if (useCache)
+			ExpressionCache.write(this, filename);
+	}
+	
+	
 	
 	// ----------------------------------------------------------------------------
 
-	/** Load expression matrix from file */
+	/** 
+	 * Load expression matrix from file in a single pass: the non-zero entries are streamed row
+	 * by row into growing primitive buffers (CSR), which are then transposed to CSC.
+	 */
 	public void load(String filename) {
 
-		// Count lines
-		int numNodes = FileParser.countLines(filename) - 1;
-		nodes_ = new String[numNodes];
+		long t0 = System.currentTimeMillis();
 		
 		// Open the file
-		FileParser parser = new FileParser(filename, true);
+		FileParser parser = new FileParser(filename);
 		// Header
 		samples_ = parser.readLine();
+		int numSamples = samples_.length;
 		
-		// Initialize expression matrix
-		X_ = new OpenMapRealMatrix(numNodes, samples_.length);
+		// Row-major buffers: non-zero entries of node i at rowPtr[i] <= k < rowPtr[i+1]
+		ArrayList<String> nodes = new ArrayList<String>();
+		int[] rowPtr = new int[1024];
+		int[] cols = new int[1024];
+		double[] values = new double[1024];
+		int nnz = 0;
 		
-		for (int i=0; ; i++) {
-			String[] nextLine = parser.readLine();
-			if (nextLine == null)
-				break;
-
+		while (parser.nextRecord()) {
 			// Check length
-			if (nextLine.length != samples_.length + 1)
-				throw new RuntimeException("Incorrect number of columns");
-
+			if (parser.getNumFields() != numSamples + 1)
+				parser.error("Incorrect number of columns");
+
+			// Grow buffers
+			if (nodes.size() + 1 == rowPtr.length)
+				rowPtr = Arrays.copyOf(rowPtr, 2*rowPtr.length);
+			if (nnz + numSamples > cols.length) {
+				int capacity = Math.max(2*cols.length, nnz + numSamples);
+				cols = Arrays.copyOf(cols, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			
 			// Parse row
-			nodes_[i] = nextLine[0];
-			for (int j=0; j<nextLine.length-1; j++)
-				X_.setEntry(i, j, Double.parseDouble(nextLine[j+1]));
+			nodes.add(parser.stringField(0));
+			for (int j=0; j<numSamples; j++) {
+				double x = parser.doubleField(j+1);
+				if (x != 0) {
+					cols[nnz] = j;
+					values[nnz] = x;
+					nnz++;
+				}
+			}
+			rowPtr[nodes.size()] = nnz;
 		}
 		parser.close();
+		numBytesRead_ = parser.getNumBytes();
+		numLinesRead_ = parser.getNumLines();
+		
+		int numNodes = nodes.size();
+		nodes_ = nodes.toArray(new String[numNodes]);
+		// Columns of each row are in order, the transpose is the CSC matrix with sorted rows
+		Xt_ = new CsrMatrix(numNodes, numSamples, rowPtr, cols, values).transpose();
+		
+		long dt = Math.max(1, System.currentTimeMillis() - t0);
+		GcMain.println("- " + numNodes + "\trows loaded in " + GcUtils.chronometer(dt) + " (" + (1000L*numNodes)/dt + " rows/s)");
 	}
 
 	
+	// ----------------------------------------------------------------------------
+
+	/** Print number of entries and memory usage */
+	public void printInfo() {
+		
+		long numEntries = (long) getNumNodes() * getNumSamples();
+		GcMain.println("- " + getNumNodes() + " x " + getNumSamples() + "\texpression matrix (nodes x samples)");
+		GcMain.println("- " + getNnz() + "\tnon-zero entries (" + (numEntries == 0 ? 0 : (100*getNnz())/numEntries) + "%)");
+		GcMain.println("- " + getMemoryBytes()/(1024*1024) + "\tMB (dense: " + 8*numEntries/(1024*1024) + " MB)\n");
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Get the expression of the given node in sample k, 0 if there is no entry */
+	public double get(int node, int k) {
+		
+		return Xt_.get(k, node);
+	}
+	
+	
 	// ----------------------------------------------------------------------------
 
 	
 	/** Set samples, check consistency with number of columns */
 	public void setSamples(String[] samples) {
 		
-		if (samples.length != X_.getColumnDimension())
+		if (samples.length != getNumSamples())
 			throw new RuntimeException("Inconsistent number of samples");
 		
 		samples_ = samples;
@@ -108,12 +186,41 @@ public class ExpressionMatrix {
 	// ============================================================================
 	// PRIVATE METHODS
 		
+	/** Set the content (used by ExpressionCache) */
+	void set(String[] samples, String[] nodes, CsrMatrix Xt) {
+		
+		if (samples.length != Xt.getNumRows() || nodes.length != Xt.getNumCols())
+			throw new RuntimeException("Inconsistent dimensions");
+		
+		samples_ = samples;
+		nodes_ = nodes;
+		Xt_ = Xt;
+	}
+
 
 	// ============================================================================
 	// GETTERS AND SETTERS
 
 	public String[] getSamples() { return samples_; }
 	public String[] getNodes() { return nodes_; }
-	public OpenMapRealMatrix getX() { return X_; }
+	
+	/** Position of the first non-zero entry of sample k */
+	public int colStart(int k) { return Xt_.rowStart(k); }
+	/** Position after the last non-zero entry of sample k */
+	public int colEnd(int k) { return Xt_.rowEnd(k); }
+	/** Node (row) of the entry at position p */
+	public int row(int p) { return Xt_.col(p); }
+	/** Value of the entry at position p */
+	public double value(int p) { return Xt_.value(p); }
+	
+	public int getNumNodes() { return Xt_.getNumCols(); }
+	public int getNumSamples() { return Xt_.getNumRows(); }
+	public int getNnz() { return Xt_.getNnz(); }
+	/** Approximate memory used by the entries (bytes) */
+	public long getMemoryBytes() { return 4L*(getNumSamples() + 1) + 12L*getNnz(); }
+	/** Bytes read from the file the matrix was loaded from (the text file or the cache) */
+	public long getNumBytesRead() { return numBytesRead_; }
+	/** Lines parsed from the text file (number of nodes if loaded from the cache) */
+	public long getNumLinesRead() { return numLinesRead_; }
 	
 }
@@ -25,7 +25,6 @@ THE SOFTWARE.
  */
 package edu.mit.genecircuits.net;
 
-import java.util.HashSet;
 
 
 /**
@@ -33,8 +32,6 @@ import java.util.HashSet;
  */
 public class Gene extends Node {
 
-	/** The transcripts of this gene */
-	private HashSet<Transcript> transcripts_ = null;
 	/** The enhancer inputs of this gene */
 	private Inputs enhancerInputs_ = null;
 	
@@ -46,16 +43,6 @@ public class Gene extends Node {
 	public Gene(String id) {
 
 		super(id);
-		transcripts_ = new HashSet<Transcript>();
-	}
-
-	
-	// ----------------------------------------------------------------------------
-
-	/** Add a transcript */
-	public void add(Transcript transcript) {
-
-		transcripts_.add(transcript);
 	}
 
 	
@@ -67,8 +54,6 @@ public class Gene extends Node {
 	// ============================================================================
 	// GETTERS AND SETTERS
 
-	public HashSet<Transcript> getTranscripts() { return transcripts_; }
-	
 	public Inputs getEnhancerInputs() { return enhancerInputs_; }
 	public void setEnhancerInputs(Inputs in) { enhancerInputs_ = in; }
 
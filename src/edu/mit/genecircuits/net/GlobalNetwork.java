@@ -0,0 +1,285 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+
+import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * The global (not cell type specific) tf---element, element---transcript and transcript---gene
+ * layers, parsed once and stored as compressed sparse row matrices (rows: elements for the
+ * first two layers, transcripts for the last one). The circuit of a given sample is obtained
+ * by masking the global network with the active elements and transcripts of the sample.
+ * Nodes are given by their index in the NodeDictionary, which is filled while loading.
+ */
+public class GlobalNetwork {
+
+	/** The node dictionary */
+	private NodeDictionary dictionary_ = null;
+	
+	/** element x tf (motif confidence) */
+	private CsrMatrix elementTf_ = null;
+	/** element x transcript (distance weight) */
+	private CsrMatrix elementTranscript_ = null;
+	/** transcript x element (transpose of elementTranscript_) */
+	private CsrMatrix transcriptElement_ = null;
+	/** transcript x gene (1 for the gene of the transcript) */
+	private CsrMatrix transcriptGene_ = null;
+	/** gene x transcript (transpose of transcriptGene_) */
+	private CsrMatrix geneTranscript_ = null;
+	
+	/** Bytes read by the last load */
+	private long numBytesRead_ = 0;
+	/** Lines parsed by the last load (number of edges for a binary edge file) */
+	private long numLinesRead_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public GlobalNetwork(NodeDictionary dictionary) {
+
+		dictionary_ = dictionary;
+		
+		// Empty layers until loaded
+		CsrMatrix.Builder empty = new CsrMatrix.Builder();
+		elementTf_ = empty.build(0, 0);
+		setElementTranscript(empty, empty);
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Print number of links */
+	public void printInfo() {
+	
+		GcMain.println("- " + elementTf_.getNnz() + "\ttf---element links");
+		GcMain.println("- " + elementTranscript_.getNnz() + "\telement---transcript links");
+		GcMain.println("- " + transcriptGene_.getNnz() + "\ttranscript---gene links\n");
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** tf---element (columns: tf, element, motif score), text or binary edge file (see EdgeFile) */
+	public void loadTfElement(String filename) {
+
+		if (EdgeFile.isBinary(filename)) {
+			EdgeFile file = new EdgeFile(filename);
+			loadTfElement(file);
+			setRead(filename, file);
+			return;
+		}
+		
+		CsrMatrix.Builder elementTf = new CsrMatrix.Builder();
+		
+		// Open the file
+		FileParser parser = new FileParser(filename, true);
+		// Skip header
+		parser.skipLines(1);
+		
+		while (parser.nextRecord()) {
+			double motifConf = parser.doubleField(2) + 0.1;
+			if (motifConf < 0.1 || motifConf > 1.0)
+				throw new IllegalArgumentException("Motif score must be in (0.1, 1.0)");
+
+			int tf = dictionary_.addTf(parser.field(0));
+			elementTf.add(dictionary_.addElement(parser.field(1)), tf, motifConf);
+		}
+		parser.close();
+		setRead(parser);
+		
+		elementTf_ = elementTf.build(dictionary_.getNumElements(), dictionary_.getNumTfs());
+	}
+
+	
+	/** tf---element from a binary edge file (the matrix is built from its edge columns, as from the text) */
+	public void loadTfElement(EdgeFile file) {
+		
+		if (file.getType() != EdgeFile.TF_ELEMENT)
+			throw new IllegalArgumentException("Not a tf---element edge file");
+		
+		// Add the ids to the dictionary (same order as the text loader)
+		int[] tfs = new int[file.getSourceIds().length];
+		for (int i=0; i<tfs.length; i++)
+			tfs[i] = dictionary_.addTf(file.getSourceIds()[i]);
+		int[] elements = dictionary_.addElements(file.getTargetIds());
+		
+		CsrMatrix.Builder elementTf = new CsrMatrix.Builder();
+		for (int k=0; k<file.getNumEdges(); k++) {
+			double motifConf = file.weight(k) + 0.1;
+			if (motifConf < 0.1 || motifConf > 1.0)
+				throw new IllegalArgumentException("Motif score must be in (0.1, 1.0)");
+			elementTf.add(elements[file.target(k)], tfs[file.source(k)], motifConf);
+		}
+		elementTf_ = elementTf.build(dictionary_.getNumElements(), dictionary_.getNumTfs());
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** promoter---transcript (columns: promoter, transcript, distance, gene), all links have weight 1 */
+	public void loadPromoterTranscript(String filename) {
+
+		if (EdgeFile.isBinary(filename)) {
+			EdgeFile file = new EdgeFile(filename);
+			loadElementTranscript(file, EdgeFile.PROMOTER_TRANSCRIPT);
+			setRead(filename, file);
+			return;
+		}
+		
+		CsrMatrix.Builder elementTranscript = new CsrMatrix.Builder();
+		CsrMatrix.Builder transcriptGene = new CsrMatrix.Builder();
+
+		// Open the file
+		FileParser parser = new FileParser(filename, true);
+		// Skip header
+		parser.skipLines(1);
+		
+		// The distance (column 2) is not used
+		while (parser.nextRecord()) {
+			int element = dictionary_.addElement(parser.field(0));
+			int transcript = dictionary_.addTranscript(parser.field(1));
+			int gene = dictionary_.addGene(parser.field(3));
+			elementTranscript.add(element, transcript, 1);
+			transcriptGene.add(transcript, gene, 1);
+		}
+		parser.close();
+		setRead(parser);
+		
+		setElementTranscript(elementTranscript, transcriptGene);
+	}
+
+
+	/** enhancer---transcript (columns: enhancer, transcript, distance, weight, gene) */
+	public void loadEnhancerTranscript(String filename) {
+
+		if (EdgeFile.isBinary(filename)) {
+			EdgeFile file = new EdgeFile(filename);
+			loadElementTranscript(file, EdgeFile.ENHANCER_TRANSCRIPT);
+			setRead(filename, file);
+			return;
+		}
+		
+		CsrMatrix.Builder elementTranscript = new CsrMatrix.Builder();
+		CsrMatrix.Builder transcriptGene = new CsrMatrix.Builder();
+
+		// Open the file
+		FileParser parser = new FileParser(filename, true);
+		// Skip header
+		parser.skipLines(1);
+		
+		// The distance (column 2) is not used
+		while (parser.nextRecord()) {
+			int element = dictionary_.addElement(parser.field(0));
+			int transcript = dictionary_.addTranscript(parser.field(1));
+			int gene = dictionary_.addGene(parser.field(4));
+			elementTranscript.add(element, transcript, parser.doubleField(3));
+			transcriptGene.add(transcript, gene, 1);
+		}
+		parser.close();
+		setRead(parser);
+		
+		setElementTranscript(elementTranscript, transcriptGene);
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** promoter---transcript or enhancer---transcript from a binary edge file of the given type (see loadTfElement(EdgeFile)) */
+	public void loadElementTranscript(EdgeFile file, int type) {
+		
+		if (file.getType() != type)
+			throw new IllegalArgumentException("Unexpected edge file type: " + file.getType());
+		
+		// Add the ids to the dictionary (same order as the text loader)
+		int[] elements = dictionary_.addElements(file.getSourceIds());
+		int[] transcripts = dictionary_.addTranscripts(file.getTargetIds());
+		int[] genes = new int[file.getGeneIds().length];
+		for (int i=0; i<genes.length; i++)
+			genes[i] = dictionary_.addGene(file.getGeneIds()[i]);
+		
+		CsrMatrix.Builder elementTranscript = new CsrMatrix.Builder();
+		CsrMatrix.Builder transcriptGene = new CsrMatrix.Builder();
+		for (int k=0; k<file.getNumEdges(); k++) {
+			int transcript = transcripts[file.target(k)];
+			elementTranscript.add(elements[file.source(k)], transcript, file.weight(k));
+			transcriptGene.add(transcript, genes[file.gene(k)], 1);
+		}
+		setElementTranscript(elementTranscript, transcriptGene);
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Record the bytes and lines read by the parser of the last load */
+	private void setRead(FileParser parser) {
+		
+		numBytesRead_ = parser.getNumBytes();
+		numLinesRead_ = parser.getNumLines();
+	}
+	
+	
+	/** Record the size and the number of edges of the binary edge file of the last load */
+	private void setRead(String filename, EdgeFile file) {
+		
+		numBytesRead_ = new File(filename).length();
+		numLinesRead_ = file.getNumEdges();
+	}
+	
+		
+	/** Build the element---transcript and transcript---gene layers and their transposes */
+	private void setElementTranscript(CsrMatrix.Builder elementTranscript, CsrMatrix.Builder transcriptGene) {
+		
+		elementTranscript_ = elementTranscript.build(dictionary_.getNumElements(), dictionary_.getNumTranscripts());
+		transcriptElement_ = elementTranscript_.transpose();
+		transcriptGene_ = transcriptGene.build(dictionary_.getNumTranscripts(), dictionary_.getNumGenes());
+		geneTranscript_ = transcriptGene_.transpose();
+	}
+	
+
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	public NodeDictionary getDictionary() { return dictionary_; }
+	
+	public CsrMatrix getElementTf() { return elementTf_; }
+	public CsrMatrix getElementTranscript() { return elementTranscript_; }
+	public CsrMatrix getTranscriptElement() { return transcriptElement_; }
+	public CsrMatrix getTranscriptGene() { return transcriptGene_; }
+	public CsrMatrix getGeneTranscript() { return geneTranscript_; }
+	
+	/** Bytes read by the last load */
+	public long getNumBytesRead() { return numBytesRead_; }
+	/** Lines parsed by the last load (number of edges for a binary edge file) */
+	public long getNumLinesRead() { return numLinesRead_; }
+	
+}
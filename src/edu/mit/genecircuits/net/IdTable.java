@@ -0,0 +1,167 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Bidirectional map between ids and dense indexes (0, 1, 2, ... in order of first addition),
+ * used by the NodeDictionary and by the id sections of the binary edge files (EdgeFile).
+ * Ids are looked up by content from any CharSequence (e.g., a field of the FileParser cursor)
+ * in an open-addressing hash table (linear probing): a String is only allocated the first
+ * time an id is added.
+ */
+class IdTable {
+	
+	/** Marks an empty slot of the hash table */
+	private static final int EMPTY = -1;
+	
+	/** The ids, indexed by their index */
+	private ArrayList<String> ids_ = new ArrayList<String>();
+	/** Hash of each id, indexed by its index */
+	private int[] hashes_ = new int[16];
+	
+	/** Hash table: index of the id (size is a power of 2, at most half full) */
+	private int[] table_ = null;
+	/** table_.length - 1 */
+	private int mask_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public IdTable() {
+		
+		initTable(32);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Add / get the index of the given id (the id is copied to a String only if it is new) */
+	public int add(CharSequence id) {
+		
+		int h = hash(id);
+		int slot = find(id, h);
+		if (table_[slot] != EMPTY)
+			return table_[slot];
+		
+		// New id
+		int index = ids_.size();
+		ids_.add(id.toString());
+		if (index == hashes_.length)
+			hashes_ = Arrays.copyOf(hashes_, 2*index);
+		hashes_[index] = h;
+		table_[slot] = index;
+		if (2*ids_.size() > table_.length)
+			grow();
+		return index;
+	}
+	
+	
+	/** Get the index of the given id, -1 if it's not in the table */
+	public int get(CharSequence id) {
+		
+		return table_[find(id, hash(id))];
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** The slot of the given id, or the empty slot where it would be inserted */
+	private int find(CharSequence id, int h) {
+		
+		int slot = h & mask_;
+		while (true) {
+			int index = table_[slot];
+			if (index == EMPTY || (hashes_[index] == h && contentEquals(ids_.get(index), id)))
+				return slot;
+			slot = (slot + 1) & mask_;
+		}
+	}
+	
+	
+	/** Double the hash table and re-insert the ids */
+	private void grow() {
+		
+		initTable(2*table_.length);
+		for (int index=0; index<ids_.size(); index++) {
+			int slot = hashes_[index] & mask_;
+			while (table_[slot] != EMPTY)
+				slot = (slot + 1) & mask_;
+			table_[slot] = index;
+		}
+	}
+	
+	
+	/** Allocate an empty hash table of the given size (power of 2) */
+	private void initTable(int size) {
+		
+		table_ = new int[size];
+		Arrays.fill(table_, EMPTY);
+		mask_ = size - 1;
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Hash of the chars (same as String.hashCode(), spread) */
+	private static int hash(CharSequence id) {
+		
+		int h = 0;
+		for (int i=0; i<id.length(); i++)
+			h = 31*h + id.charAt(i);
+		return h ^ (h >>> 16);
+	}
+	
+	
+	/** True if the id has the given chars */
+	private static boolean contentEquals(String id, CharSequence chars) {
+		
+		if (id.length() != chars.length())
+			return false;
+		for (int i=0; i<id.length(); i++)
+			if (id.charAt(i) != chars.charAt(i))
+				return false;
+		return true;
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+	
+	/** The id with the given index */
+	public String getId(int index) { return ids_.get(index); }
+	/** The ids, indexed by their index */
+	public String[] getIds() { return ids_.toArray(new String[ids_.size()]); }
+	/** Number of ids */
+	public int size() { return ids_.size(); }
+	
+}
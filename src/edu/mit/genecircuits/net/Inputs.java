@@ -48,6 +48,13 @@ public class Inputs {
 	}
 
 	
+	/** Constructor, initial capacity given by the expected number of nodes */
+	public Inputs(int numNodes) {
+
+		weights_ = new HashMap<Node, Double>(Math.max(16, (int) (numNodes / 0.75) + 1));
+	}
+
+	
 	// ----------------------------------------------------------------------------
 
 	/** Add a regulator with it's weight vector (use max if several instances of same tf are added) */
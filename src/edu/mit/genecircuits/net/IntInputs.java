@@ -0,0 +1,299 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.util.Arrays;
+
+
+/**
+ * Primitive counterpart of Inputs, with the nodes given by their dense integer index (>= 0).
+ * The entries are stored in insertion order in parallel int/double arrays, which are indexed
+ * by an open-addressing hash table (linear probing). Same semantics as Inputs: if a node is
+ * added several times, the max weight is kept. No boxing, no allocation once the arrays have
+ * grown to the required size (use clear() to reuse an instance).
+ */
+public class IntInputs {
+
+	/** Marks an empty slot of the hash table */
+	private static final int EMPTY = -1;
+	
+	/** The node indexes, in insertion order */
+	private int[] nodes_ = null;
+	/** The weights of the nodes */
+	private double[] weights_ = null;
+	/** Number of entries */
+	private int size_ = 0;
+	
+	/** Hash table: position of the node in nodes_ and weights_ (size is a power of 2) */
+	private int[] table_ = null;
+	/** table_.length - 1 */
+	private int mask_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public IntInputs() {
+
+		this(16);
+	}
+
+	
+	/** Constructor, initial capacity */
+	public IntInputs(int capacity) {
+
+		capacity = Math.max(capacity, 2);
+		nodes_ = new int[capacity];
+		weights_ = new double[capacity];
+		initTable(tableSize(capacity));
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Add a node with its weight (use max if the same node is added several times) */
+	public void add(int node, double wNew) {
+
+		int slot = hash(node) & mask_;
+		while (true) {
+			int k = table_[slot];
+			if (k == EMPTY)
+				break;
+			if (nodes_[k] == node) {
+				if (wNew > weights_[k])
+					weights_[k] = wNew;
+				return;
+			}
+			slot = (slot + 1) & mask_;
+		}
+		
+		// New node
+		if (size_ == nodes_.length) {
+			grow();
+			add(node, wNew);
+			return;
+		}
+		nodes_[size_] = node;
+		weights_[size_] = wNew;
+		table_[slot] = size_;
+		size_++;
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Add the given inputs (use max for each node) */
+	public void add(IntInputs other) {
+
+		for (int k=0; k<other.size_; k++)
+			add(other.nodes_[k], other.weights_[k]);
+	}
+
+
+	// ----------------------------------------------------------------------------
+
+	/** Multiply the weights by a constant */
+	public void multiply(double x) {
+
+		for (int k=0; k<size_; k++)
+			weights_[k] *= x;
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Get the weight of the given node (NaN if not present) */
+	public double get(int node) {
+
+		int slot = hash(node) & mask_;
+		while (true) {
+			int k = table_[slot];
+			if (k == EMPTY)
+				return Double.NaN;
+			if (nodes_[k] == node)
+				return weights_[k];
+			slot = (slot + 1) & mask_;
+		}
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Select the entries with weight >= minWeight, at most the maxSize largest (0 = no limit, ties are
+	 * broken by the smaller node index) using a bounded min-heap. The positions of the selected entries
+	 * (see getNode(k) and getWeight(k)) are written to selected in insertion order, return their number.
+	 * @param selected Output buffer of length >= size()
+	 */
+	public int select(int maxSize, double minWeight, int[] selected) {
+		
+		int n = 0;
+		if (maxSize <= 0 || maxSize >= size_) {
+			for (int k=0; k<size_; k++)
+				if (weights_[k] >= minWeight)
+					selected[n++] = k;
+			return n;
+		}
+		
+		// Min-heap of the maxSize best entries in selected[0, n), the worst at the root
+		for (int k=0; k<size_; k++) {
+			if (weights_[k] < minWeight)
+				continue;
+			if (n < maxSize) {
+				selected[n] = k;
+				siftUp(selected, n++);
+			} else if (isBetter(k, selected[0])) {
+				selected[0] = k;
+				siftDown(selected, n);
+			}
+		}
+		Arrays.sort(selected, 0, n);
+		return n;
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Remove all entries, keep the allocated arrays (cost proportional to the number of entries) */
+	public void clear() {
+
+		if (size_ > table_.length / 8) {
+			Arrays.fill(table_, EMPTY);
+		} else {
+			// Only reset the used slots
+			for (int k=0; k<size_; k++) {
+				int slot = hash(nodes_[k]) & mask_;
+				while (table_[slot] != EMPTY) {
+					table_[slot] = EMPTY;
+					slot = (slot + 1) & mask_;
+				}
+			}
+		}
+		size_ = 0;
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** True if the entry at position a ranks before the entry at position b (larger weight, then smaller node) */
+	private boolean isBetter(int a, int b) {
+		
+		return weights_[a] > weights_[b] || (weights_[a] == weights_[b] && nodes_[a] < nodes_[b]);
+	}
+	
+	
+	/** Move heap[i] up to restore the min-heap order */
+	private void siftUp(int[] heap, int i) {
+		
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (!isBetter(heap[parent], heap[i]))
+				break;
+			int tmp = heap[parent];
+			heap[parent] = heap[i];
+			heap[i] = tmp;
+			i = parent;
+		}
+	}
+	
+	
+	/** Move the root of heap[0, n) down to restore the min-heap order */
+	private void siftDown(int[] heap, int n) {
+		
+		int i = 0;
+		while (true) {
+			int worst = i;
+			int left = 2*i + 1;
+			int right = left + 1;
+			if (left < n && isBetter(heap[worst], heap[left]))
+				worst = left;
+			if (right < n && isBetter(heap[worst], heap[right]))
+				worst = right;
+			if (worst == i)
+				return;
+			int tmp = heap[worst];
+			heap[worst] = heap[i];
+			heap[i] = tmp;
+			i = worst;
+		}
+	}
+	
+	
+	/** Double the capacity and rebuild the hash table */
+	private void grow() {
+		
+		int capacity = 2*nodes_.length;
+		nodes_ = Arrays.copyOf(nodes_, capacity);
+		weights_ = Arrays.copyOf(weights_, capacity);
+		
+		initTable(tableSize(capacity));
+		for (int k=0; k<size_; k++) {
+			int slot = hash(nodes_[k]) & mask_;
+			while (table_[slot] != EMPTY)
+				slot = (slot + 1) & mask_;
+			table_[slot] = k;
+		}
+	}
+	
+	
+	/** Allocate an empty hash table of the given size */
+	private void initTable(int size) {
+		
+		table_ = new int[size];
+		Arrays.fill(table_, EMPTY);
+		mask_ = size - 1;
+	}
+	
+	
+	/** Hash table size for the given capacity (load factor at most 0.5) */
+	private static int tableSize(int capacity) {
+		
+		return Integer.highestOneBit(capacity - 1) << 2;
+	}
+	
+	
+	/** Scramble the bits of the index (consecutive indexes would otherwise cluster) */
+	private static int hash(int node) {
+		
+		int h = node * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** Number of nodes */
+	public int size() { return size_; }
+	
+	/** The index of the k'th node (in insertion order, 0 <= k < size()) */
+	public int getNode(int k) { return nodes_[k]; }
+	/** The weight of the k'th node (in insertion order, 0 <= k < size()) */
+	public double getWeight(int k) { return weights_[k]; }
+	
+}
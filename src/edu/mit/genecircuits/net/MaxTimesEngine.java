@@ -0,0 +1,257 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+
+
+/**
+ * Propagates tf weights along the tf---element---transcript---gene layers of a GlobalNetwork
+ * for one sample, using the max-times semiring restricted to the active elements and
+ * transcripts of the sample:
+ * 
+ *   w(e,t)    = distanceWeight(e,t) * sqrt(expr(e) * expr(t))   (transcript expression given)
+ *   w(e,t)    = distanceWeight(e,t) * expr(e)                   (no transcript expression)
+ *   w(tf,g)   = max_{t of g, e of t} motifConf(tf,e) * w(e,t)
+ *   w(e,g)    = max_{t of g} w(e,t)
+ * 
+ * Genes are first collected from the active elements, then aggregated one at a time into
+ * reusable primitive accumulators. An instance is not thread safe, use one per thread.
+ * 
+ * If a min weight is set, contributions below it are skipped: since weights are aggregated
+ * with max, they cannot be the weight of an edge that passes the threshold. Transcripts and
+ * elements are cut early using upper bounds (max distance weight of the transcript, max
+ * element expression of the sample, max motif confidence of the element).
+ */
+public class MaxTimesEngine {
+
+	/** element x tf (motif confidence) */
+	private CsrMatrix elementTf_ = null;
+	/** element x transcript (distance weight) */
+	private CsrMatrix elementTranscript_ = null;
+	/** transcript x element */
+	private CsrMatrix transcriptElement_ = null;
+	/** transcript x gene */
+	private CsrMatrix transcriptGene_ = null;
+	/** gene x transcript */
+	private CsrMatrix geneTranscript_ = null;
+	
+	/** The tf inputs of the current gene */
+	private IntInputs tfInputs_ = null;
+	/** The element inputs of the current gene */
+	private IntInputs elementInputs_ = null;
+	/** Marks the genes that were reached in the current sample (sample stamp) */
+	private int[] geneStamp_ = null;
+	/** The genes reached in the current sample */
+	private int[] genes_ = null;
+	/** Current stamp (incremented for each sample, avoids clearing geneStamp_) */
+	private int stamp_ = 0;
+	
+	/** Contributions below this weight are skipped (0 = no pruning) */
+	private double minWeight_ = 0;
+	/** Max motif confidence of each element (initialized by setMinWeight()) */
+	private double[] maxTfConf_ = null;
+	/** Max motif confidence over all elements, at least 1 */
+	private double maxConf_ = 1;
+	/** Max distance weight of each transcript (initialized by setMinWeight()) */
+	private double[] maxDistance_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public MaxTimesEngine(GlobalNetwork net) {
+
+		elementTf_ = net.getElementTf();
+		elementTranscript_ = net.getElementTranscript();
+		transcriptElement_ = net.getTranscriptElement();
+		transcriptGene_ = net.getTranscriptGene();
+		geneTranscript_ = net.getGeneTranscript();
+		
+		tfInputs_ = new IntInputs();
+		elementInputs_ = new IntInputs();
+		geneStamp_ = new int[geneTranscript_.getNumRows()];
+		genes_ = new int[geneTranscript_.getNumRows()];
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Skip the contributions below the given weight, the inputs passed to the sink include all inputs >= minWeight */
+	public void setMinWeight(double minWeight) {
+		
+		minWeight_ = minWeight;
+		if (minWeight <= 0 || maxTfConf_ != null)
+			return;
+		
+		// Upper bounds
+		maxTfConf_ = rowMax(elementTf_);
+		maxDistance_ = rowMax(transcriptElement_);
+		for (double conf : maxTfConf_)
+			maxConf_ = Math.max(maxConf_, conf);
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** 
+	 * Compute the tf and element inputs of all genes reached from the given active elements
+	 * and pass them to the sink (the accumulators are reused, the sink must copy them).
+	 * @param activeElements Indexes of the elements with expr > 0
+	 * @param elementExpr Element expression, indexed by element (0 for inactive elements)
+	 * @param transcriptExpr Transcript expression, indexed by transcript (0 for inactive transcripts),
+	 * or null if all transcripts are active and their expression is not used (promoters)
+	 */
+	public void propagate(int[] activeElements, double[] elementExpr, double[] transcriptExpr, GeneSink sink) {
+
+		int numGenes = collectGenes(activeElements, transcriptExpr);
+		boolean prune = minWeight_ > 0;
+		double maxElementExpr = 0;
+		if (prune)
+			for (int e : activeElements)
+				maxElementExpr = Math.max(maxElementExpr, elementExpr[e]);
+
+		for (int i=0; i<numGenes; i++) {
+			int g = genes_[i];
+			tfInputs_.clear();
+			elementInputs_.clear();
+			
+			// For each active transcript of this gene
+			for (int kt=geneTranscript_.rowStart(g); kt<geneTranscript_.rowEnd(g); kt++) {
+				int t = geneTranscript_.col(kt);
+				if (transcriptExpr != null && !isActive(transcriptExpr, t))
+					continue;
+				if (prune) {
+					double bound = rowMax(maxDistance_, t) * (transcriptExpr == null ? maxElementExpr : Math.sqrt(maxElementExpr * transcriptExpr[t]));
+					if (bound * maxConf_ < minWeight_)
+						continue;
+				}
+
+				// For each active element of this transcript
+				for (int ke=transcriptElement_.rowStart(t); ke<transcriptElement_.rowEnd(t); ke++) {
+					int e = transcriptElement_.col(ke);
+					if (!isActive(elementExpr, e))
+						continue;
+					
+					double distanceWeight = transcriptElement_.value(ke);
+					double exprWeight = transcriptExpr == null ? elementExpr[e] : Math.sqrt(elementExpr[e] * transcriptExpr[t]);
+					double elementTranscriptWeight = distanceWeight * exprWeight;
+					if (prune) {
+						addPruned(e, elementTranscriptWeight);
+						continue;
+					}
+					elementInputs_.add(e, elementTranscriptWeight);
+					
+					// For each tf of this element
+					for (int kf=elementTf_.rowStart(e); kf<elementTf_.rowEnd(e); kf++)
+						tfInputs_.add(elementTf_.col(kf), elementTf_.value(kf) * elementTranscriptWeight);
+				}
+			}
+			sink.gene(g, tfInputs_, elementInputs_);
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Add the element and its tfs for the given element---transcript weight, skip contributions below the min weight */
+	private void addPruned(int e, double elementTranscriptWeight) {
+		
+		if (elementTranscriptWeight >= minWeight_)
+			elementInputs_.add(e, elementTranscriptWeight);
+		if (elementTranscriptWeight * rowMax(maxTfConf_, e) < minWeight_)
+			return;
+		
+		for (int kf=elementTf_.rowStart(e); kf<elementTf_.rowEnd(e); kf++) {
+			double w = elementTf_.value(kf) * elementTranscriptWeight;
+			if (w >= minWeight_)
+				tfInputs_.add(elementTf_.col(kf), w);
+		}
+	}
+	
+	
+	/** The max of row i (rows beyond the matrix are empty) */
+	private static double rowMax(double[] max, int i) {
+		
+		return i < max.length ? max[i] : 0;
+	}
+	
+	
+	/** Max value of each row (0 for empty rows) */
+	private static double[] rowMax(CsrMatrix m) {
+		
+		double[] max = new double[m.getNumRows()];
+		for (int i=0; i<max.length; i++)
+			for (int k=m.rowStart(i); k<m.rowEnd(i); k++)
+				max[i] = Math.max(max[i], m.value(k));
+		return max;
+	}
+	
+		
+	/** Collect the genes with at least one active element---transcript link, return their number */
+	private int collectGenes(int[] activeElements, double[] transcriptExpr) {
+		
+		stamp_++;
+		int numGenes = 0;
+		
+		for (int e : activeElements) {
+			for (int kt=elementTranscript_.rowStart(e); kt<elementTranscript_.rowEnd(e); kt++) {
+				int t = elementTranscript_.col(kt);
+				if (transcriptExpr != null && !isActive(transcriptExpr, t))
+					continue;
+				
+				for (int kg=transcriptGene_.rowStart(t); kg<transcriptGene_.rowEnd(t); kg++) {
+					int g = transcriptGene_.col(kg);
+					if (geneStamp_[g] != stamp_) {
+						geneStamp_[g] = stamp_;
+						genes_[numGenes++] = g;
+					}
+				}
+			}
+		}
+		return numGenes;
+	}
+	
+	
+	/** True if the node has expression > 0 (nodes beyond the array are not active) */
+	private static boolean isActive(double[] expr, int node) {
+		
+		return node < expr.length && expr[node] != 0;
+	}
+	
+	
+	// ============================================================================
+	// GENE SINK
+	
+	/** Receives the inputs of each gene */
+	public interface GeneSink {
+		
+		/** Inputs of the given gene (the accumulators are reused for the next gene) */
+		public void gene(int gene, IntInputs tfInputs, IntInputs elementInputs);
+	}
+	
+}
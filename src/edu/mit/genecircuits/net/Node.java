@@ -34,6 +34,8 @@ public class Node {
 
 	/** Name */
 	protected String id_ = null;
+	/** Dense index among the nodes of the same type (see NodeDictionary), -1 if not set */
+	protected int index_ = -1;
 	/** The tfs of this element with their motif confidence score */
 	protected Inputs tfInputs_ = null;
 	/** Expression value */
@@ -81,6 +83,9 @@ public class Node {
 
 	public String getId() { return id_; }
 	
+	public int getIndex() { return index_; }
+	public void setIndex(int index) { index_ = index; }
+	
 	public Inputs getTfInputs() { return tfInputs_; }
 	public void setTfInputs(Inputs tfs) { tfInputs_ = tfs; }
 	
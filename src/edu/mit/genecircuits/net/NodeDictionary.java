@@ -0,0 +1,149 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.util.ArrayList;
+
+import edu.mit.genecircuits.GcMain;
+
+
+/**
+ * Run-wide symbol table, assigns a stable dense index (0, 1, 2, ...) to each tf, regulatory
+ * element, transcript and gene id when the input files are loaded. All sample circuits share
+ * the dictionary, so that nodes can be looked up by array indexing instead of string hashing.
+ * The TF nodes don't have sample specific state and are shared by all circuits.
+ * 
+ * The dictionary is filled while loading (single thread), it is only read when the circuits
+ * are built (thread safe).
+ */
+public class NodeDictionary {
+
+	/** The TF ids */
+	private IdTable tfIds_ = null;
+	/** The regulatory element ids */
+	private IdTable elementIds_ = null;
+	/** The transcript ids */
+	private IdTable transcriptIds_ = null;
+	/** The gene ids */
+	private IdTable geneIds_ = null;
+	
+	/** The TF nodes (shared by all circuits), indexed by their dense index */
+	private ArrayList<Tf> tfs_ = null;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public NodeDictionary() {
+
+		tfIds_ = new IdTable();
+		elementIds_ = new IdTable();
+		transcriptIds_ = new IdTable();
+		geneIds_ = new IdTable();
+		tfs_ = new ArrayList<Tf>();
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Print number of nodes */
+	public void printInfo() {
+	
+		GcMain.println("- " + getNumTfs() + "\tTFs");
+		GcMain.println("- " + getNumElements() + "\tRegulatory elements");
+		GcMain.println("- " + getNumTranscripts() + "\tTranscripts");
+		GcMain.println("- " + getNumGenes() + "\tGenes\n");
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Add / get the index of a tf (the id is copied to a String only if it is new, see IdTable) */
+	public int addTf(CharSequence id) {
+		
+		int index = tfIds_.add(id);
+		if (index == tfs_.size()) {
+			Tf tf = new Tf(tfIds_.getId(index));
+			tf.setIndex(index);
+			tfs_.add(tf);
+		}
+		return index;
+	}
+	
+	/** Add / get the index of a regulatory element */
+	public int addElement(CharSequence id) { return elementIds_.add(id); }
+	/** Add / get the index of a transcript */
+	public int addTranscript(CharSequence id) { return transcriptIds_.add(id); }
+	/** Add / get the index of a gene */
+	public int addGene(CharSequence id) { return geneIds_.add(id); }
+
+	
+	/** Add / get the indexes of the given regulatory elements */
+	public int[] addElements(String[] ids) {
+		
+		int[] indexes = new int[ids.length];
+		for (int i=0; i<ids.length; i++)
+			indexes[i] = addElement(ids[i]);
+		return indexes;
+	}
+
+	/** Add / get the indexes of the given transcripts */
+	public int[] addTranscripts(String[] ids) {
+		
+		int[] indexes = new int[ids.length];
+		for (int i=0; i<ids.length; i++)
+			indexes[i] = addTranscript(ids[i]);
+		return indexes;
+	}
+
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** The index of the given tf (-1 if not in the dictionary) */
+	public int getTfIndex(String id) { return tfIds_.get(id); }
+	/** The index of the given regulatory element (-1 if not in the dictionary) */
+	public int getElementIndex(String id) { return elementIds_.get(id); }
+	/** The index of the given transcript (-1 if not in the dictionary) */
+	public int getTranscriptIndex(String id) { return transcriptIds_.get(id); }
+	/** The index of the given gene (-1 if not in the dictionary) */
+	public int getGeneIndex(String id) { return geneIds_.get(id); }
+	
+	public String getTfId(int index) { return tfIds_.getId(index); }
+	public String getElementId(int index) { return elementIds_.getId(index); }
+	public String getTranscriptId(int index) { return transcriptIds_.getId(index); }
+	public String getGeneId(int index) { return geneIds_.getId(index); }
+	
+	/** The (shared) tf node with the given index */
+	public Tf getTf(int index) { return tfs_.get(index); }
+	
+	public int getNumTfs() { return tfIds_.size(); }
+	public int getNumElements() { return elementIds_.size(); }
+	public int getNumTranscripts() { return transcriptIds_.size(); }
+	public int getNumGenes() { return geneIds_.size(); }
+	
+}
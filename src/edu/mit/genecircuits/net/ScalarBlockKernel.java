@@ -26,53 +26,30 @@ THE SOFTWARE.
 package edu.mit.genecircuits.net;
 
 
-
 /**
- * 
+ * Scalar kernels of the BlockMaxTimesEngine (see BlockKernel)
  */
-public class Transcript extends Node {
-
-	/** The regulatory elements of this transcript */
-	private Inputs elementInputs_ = null;
+public class ScalarBlockKernel extends BlockKernel {
 
-	
 	// ============================================================================
 	// PUBLIC METHODS
 	
-	/** Constructor */
-	public Transcript(String id) {
-
-		super(id);
-		elementInputs_ = new Inputs();
+	public boolean linkWeights(double[] elementExpr, int eOffset, double[] transcriptExpr, int tOffset, 
+			double distanceWeight, double[] y, int n) {
+		
+		return scalarLinkWeights(elementExpr, eOffset, transcriptExpr, tOffset, distanceWeight, y, 0, n);
 	}
-
 	
-	// ----------------------------------------------------------------------------
-
-	/** Add a regulatory element */
-	public void add(RegElement element) {
-
-		elementInputs_.add(element, 1);
-	}
-
-
-	// ----------------------------------------------------------------------------
-
-	/** Add a regulatory element with given weight */
-	public void add(RegElement element, double w) {
-
-		elementInputs_.add(element, w);
+	
+	public void maxMerge(double[] y, double[] acc, int offset, int n) {
+		
+		scalarMaxMerge(y, acc, offset, 0, n);
 	}
-
 	
 	
-	// ============================================================================
-	// PRIVATE METHODS
+	public void scaledMaxMerge(double c, double[] y, double[] acc, int offset, int n) {
 		
+		scalarScaledMaxMerge(c, y, acc, offset, 0, n);
+	}
 
-	// ============================================================================
-	// GETTERS AND SETTERS
-
-	Inputs getElementInputs() { return elementInputs_; }
-	
 }
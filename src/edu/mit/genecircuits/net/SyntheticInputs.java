@@ -0,0 +1,423 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.math3.distribution.GeometricDistribution;
+import org.apache.commons.math3.distribution.IntegerDistribution;
+import org.apache.commons.math3.distribution.PoissonDistribution;
+import org.apache.commons.math3.distribution.ZipfDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
+
+import edu.mit.genecircuits.FileExport;
+import edu.mit.genecircuits.GcMain;
+import edu.mit.genecircuits.Settings;
+
+
+/**
+ * Writes synthetic global networks and expression matrices of realistic size (default: FANTOM5
+ * scale) in the formats read by CircuitBuilder, to the files given by the Settings (circuitDir_,
+ * the network and expression file prefixes, suffix_). The output only depends on the parameters
+ * and Settings.randomSeed_.
+ * 
+ * - Node counts: tfs, promoters, enhancers, transcripts, genes, samples. Transcript t belongs
+ *   to gene t*numGenes/numTranscripts; elements are linked to transcripts around the same
+ *   relative position (genomic locality).
+ * - Degrees: the number of tfs per element (fan-in) and of transcripts per element (fan-out)
+ *   are drawn from a "poisson", "geometric" (heavy tailed) or "fixed" distribution with the
+ *   given mean. With tfHubExponent > 0, tfs are drawn from a Zipf distribution (hub tfs).
+ * - Sparsity: the fraction of active nodes of each sample is uniform in [minActive, maxActive],
+ *   active nodes have an expression in (0, 1] (as the rank normalized inputs).
+ * 
+ * Usage: SyntheticInputs [-settings <file>] [-<parameter> <value> ...], e.g., -tfs 662 -samples 50
+ * -tfsPerElement 20 -degrees geometric (see main() for the parameters).
+ */
+public class SyntheticInputs {
+
+	/** Number of tfs */
+	private int numTfs_ = 662;
+	/** Number of promoters */
+	private int numPromoters_ = 180000;
+	/** Number of enhancers */
+	private int numEnhancers_ = 40000;
+	/** Number of transcripts */
+	private int numTranscripts_ = 90000;
+	/** Number of genes */
+	private int numGenes_ = 20000;
+	/** Number of samples */
+	private int numSamples_ = 400;
+	
+	/** Distribution of the degrees: "poisson", "geometric" or "fixed" */
+	private String degrees_ = "poisson";
+	/** Mean number of tfs per promoter or enhancer */
+	private double tfsPerElement_ = 20;
+	/** Mean number of transcripts per enhancer */
+	private double transcriptsPerEnhancer_ = 3;
+	/** Mean number of transcripts per promoter (at least one) */
+	private double transcriptsPerPromoter_ = 1.2;
+	/** Exponent of the Zipf distribution of the tfs (0 = uniform) */
+	private double tfHubExponent_ = 0.5;
+	/** Transcripts are linked to elements within this distance of their relative position (in transcripts) */
+	private int window_ = 50;
+	
+	/** Min fraction of active nodes per sample */
+	private double minActive_ = 0.05;
+	/** Max fraction of active nodes per sample */
+	private double maxActive_ = 0.5;
+	
+	/** The random number generator */
+	private RandomGenerator rng_ = null;
+	/** Used to draw distinct targets */
+	private int[] mark_ = null;
+	/** Stamp of the current source in mark_ */
+	private int stamp_ = 0;
+	
+	
+	// ============================================================================
+	// PUBLIC METHODS
+	
+	/** Constructor */
+	public SyntheticInputs() {
+	}
+
+	
+	// ----------------------------------------------------------------------------
+
+	/** Write the tf---enhancer---transcript network, enhancer and transcript expression */
+	public void writeEnhancerInputs() {
+		
+		initialize();
+		writeTfElement(getNetworkFile(Settings.tfEnhancerFile_), "Enhancer", "e", numEnhancers_);
+		writeEnhancerTranscript(getNetworkFile(Settings.enhancerTranscriptFile_));
+		writeExpr(Settings.circuitDir_ + "/" + Settings.enhancerExprFile_ + ".txt", "e", numEnhancers_);
+		writeExpr(Settings.circuitDir_ + "/" + Settings.transcriptExprFile_ + Settings.suffix_ + ".txt", "t", numTranscripts_);
+	}
+
+	
+	/** Write the tf---promoter---transcript network and promoter expression */
+	public void writePromoterInputs() {
+		
+		initialize();
+		writeTfElement(getNetworkFile(Settings.tfPromoterFile_), "Promoter", "p", numPromoters_);
+		writePromoterTranscript(getNetworkFile(Settings.promoterTranscriptFile_));
+		writeExpr(Settings.circuitDir_ + "/" + Settings.promoterExprFile_ + Settings.suffix_ + ".txt", "p", numPromoters_);
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+	
+	/** Reset the random number generator (same output for the same seed), create the output directories */
+	private void initialize() {
+		
+		rng_ = Settings.randomSeed_ == -1 ? new Well19937c() : new Well19937c(Settings.randomSeed_);
+		mark_ = new int[Math.max(numTfs_, numTranscripts_)];
+		stamp_ = 0;
+		
+		for (String prefix : new String[] { Settings.tfEnhancerFile_, Settings.tfPromoterFile_, Settings.enhancerExprFile_, Settings.transcriptExprFile_, Settings.promoterExprFile_ })
+			new File(Settings.circuitDir_ + "/" + prefix).getParentFile().mkdirs();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** tf---element: "TF\t<type>\tmaxMotifConfidence" with confidences in [0, 0.9) (+0.1 when loaded) */
+	private void writeTfElement(String filename, String type, String prefix, int numElements) {
+		
+		IntegerDistribution degrees = getDegrees(tfsPerElement_);
+		ZipfDistribution hubs = tfHubExponent_ > 0 ? new ZipfDistribution(rng_, numTfs_, tfHubExponent_) : null;
+		
+		FileExport writer = new FileExport(filename);
+		writer.println("TF\t" + type + "\tmaxMotifConfidence");
+		StringBuilder line = new StringBuilder();
+		
+		for (int e=0; e<numElements; e++) {
+			int degree = Math.min(sampleDegree(degrees, tfsPerElement_), numTfs_);
+			stamp_++;
+			for (int k=0; k<degree; k++) {
+				// Fall back to uniform draws when the hubs are taken
+				int tf;
+				int trial = 0;
+				do {
+					tf = hubs != null && trial++ < 20 ? hubs.sample() - 1 : rng_.nextInt(numTfs_);
+				} while (mark_[tf] == stamp_);
+				mark_[tf] = stamp_;
+				
+				line.setLength(0);
+				line.append("tf").append(tf).append('\t').append(prefix).append(e).append('\t');
+				appendFraction(line, rng_.nextInt(900), 3);
+				writer.println(line.toString());
+			}
+		}
+		writer.close();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** enhancer---transcript: "enhancer\ttranscript\tdistance\tweight\tgene", the weight decays with the distance */
+	private void writeEnhancerTranscript(String filename) {
+		
+		IntegerDistribution degrees = getDegrees(transcriptsPerEnhancer_);
+		
+		FileExport writer = new FileExport(filename);
+		writer.println("enhancer\ttranscript\tdistance\tweight\tgene");
+		StringBuilder line = new StringBuilder();
+		
+		for (int e=0; e<numEnhancers_; e++) {
+			int degree = sampleDegree(degrees, transcriptsPerEnhancer_);
+			stamp_++;
+			for (int k=0; k<degree; k++) {
+				int t = nearbyTranscript(e, numEnhancers_);
+				if (t == -1)
+					break;
+				// Distance in bp, weight 1 at distance 0 and 0.5 at 50kb
+				int distance = rng_.nextInt(1000000);
+				int weight = (int) Math.max(1, Math.round(10000 * Math.pow(0.5, distance / 50000.0)));
+				
+				line.setLength(0);
+				line.append('e').append(e).append("\tt").append(t).append('\t').append(distance).append('\t');
+				appendFraction(line, weight, 4);
+				line.append("\tg").append(getGene(t));
+				writer.println(line.toString());
+			}
+		}
+		writer.close();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** promoter---transcript: "Promoter\tTranscript\tDistance\tGene", at least one transcript per promoter */
+	private void writePromoterTranscript(String filename) {
+		
+		IntegerDistribution degrees = getDegrees(transcriptsPerPromoter_ - 1);
+		
+		FileExport writer = new FileExport(filename);
+		writer.println("Promoter\tTranscript\tDistance\tGene");
+		
+		for (int p=0; p<numPromoters_; p++) {
+			int degree = 1 + sampleDegree(degrees, transcriptsPerPromoter_ - 1);
+			stamp_++;
+			for (int k=0; k<degree; k++) {
+				int t = nearbyTranscript(p, numPromoters_);
+				if (t == -1)
+					break;
+				writer.println("p" + p + "\tt" + t + "\t" + rng_.nextInt(1000) + "\tg" + getGene(t));
+			}
+		}
+		writer.close();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** Expression matrix (gzip, filename + ".gz"): header with the samples, then one row per node */
+	private void writeExpr(String filename, String prefix, int numNodes) {
+		
+		double[] active = new double[numSamples_];
+		for (int s=0; s<numSamples_; s++)
+			active[s] = minActive_ + (maxActive_ - minActive_)*rng_.nextDouble();
+		
+		FileExport writer = new FileExport(filename, true);
+		StringBuilder line = new StringBuilder();
+		for (int s=0; s<numSamples_; s++)
+			line.append(s == 0 ? "" : "\t").append('s').append(s);
+		writer.println(line.toString());
+		
+		for (int i=0; i<numNodes; i++) {
+			line.setLength(0);
+			line.append(prefix).append(i);
+			for (int s=0; s<numSamples_; s++) {
+				line.append('\t');
+				if (rng_.nextDouble() < active[s])
+					appendFraction(line, 1 + rng_.nextInt(10000), 4);
+				else
+					line.append('0');
+			}
+			writer.println(line.toString());
+		}
+		writer.close();
+	}
+	
+	
+	// ----------------------------------------------------------------------------
+
+	/** A transcript around the relative position of element e that was not drawn yet for e (-1 if there is none left) */
+	private int nearbyTranscript(int e, int numElements) {
+		
+		int center = (int) ((long) e * numTranscripts_ / numElements);
+		int first = Math.max(0, center - window_);
+		int end = Math.min(numTranscripts_, center + window_ + 1);
+		
+		for (int trial=0; trial<10*(end - first); trial++) {
+			int t = first + rng_.nextInt(end - first);
+			if (mark_[t] != stamp_) {
+				mark_[t] = stamp_;
+				return t;
+			}
+		}
+		return -1;
+	}
+	
+	
+	/** The gene of transcript t */
+	private int getGene(int t) {
+		
+		return (int) ((long) t * numGenes_ / numTranscripts_);
+	}
+	
+	
+	/** The distribution of degrees with the given mean (null for fixed degrees) */
+	private IntegerDistribution getDegrees(double mean) {
+		
+		if (degrees_.equals("poisson"))
+			return mean > 0 ? new PoissonDistribution(rng_, mean, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS) : null;
+		else if (degrees_.equals("geometric"))
+			return new GeometricDistribution(rng_, 1/(1 + mean));
+		else if (degrees_.equals("fixed"))
+			return null;
+		else
+			throw new IllegalArgumentException("Unknown degree distribution: " + degrees_);
+	}
+	
+	
+	/** Draw a degree from the given distribution (the rounded mean if it is null) */
+	private int sampleDegree(IntegerDistribution degrees, double mean) {
+		
+		return degrees != null ? degrees.sample() : (int) Math.round(mean);
+	}
+	
+	
+	/** Append k / 10^digits for 0 <= k <= 10^digits, e.g., "0.0420" or "1" */
+	private static void appendFraction(StringBuilder line, int k, int digits) {
+		
+		int scale = (int) Math.pow(10, digits);
+		if (k == scale) {
+			line.append('1');
+			return;
+		}
+		line.append("0.");
+		for (int d=scale/10; d>k && d>1; d/=10)
+			line.append('0');
+		line.append(k);
+	}
+	
+	
+	/** The text network file with the given prefix */
+	private String getNetworkFile(String prefix) {
+		
+		return Settings.circuitDir_ + "/" + prefix + Settings.suffix_ + ".txt";
+	}
+	
+	
+	// ============================================================================
+	// STATIC METHODS
+	
+	/** Main: write the enhancer and promoter inputs */
+	public static void main(String[] args) {
+		
+		try {
+			SyntheticInputs inputs = new SyntheticInputs();
+			int i = 0;
+			if (args.length > 1 && args[0].equals("-settings")) {
+				Settings.settingsFile_ = args[1];
+				i = 2;
+			}
+			Settings.loadSettings();
+			
+			for (; i<args.length; i+=2) {
+				if (i + 1 == args.length)
+					throw new IllegalArgumentException("Missing value of " + args[i]);
+				inputs.set(args[i], args[i+1]);
+			}
+			inputs.writeEnhancerInputs();
+			inputs.writePromoterInputs();
+			
+		} catch (Exception e) {
+			GcMain.error(e);
+		}
+	}
+	
+	
+	// ============================================================================
+	// GETTERS AND SETTERS
+
+	/** Set the given parameter (command-line name, e.g., "-tfs") */
+	public void set(String name, String value) {
+		
+		if (name.equals("-tfs"))
+			numTfs_ = Integer.parseInt(value);
+		else if (name.equals("-promoters"))
+			numPromoters_ = Integer.parseInt(value);
+		else if (name.equals("-enhancers"))
+			numEnhancers_ = Integer.parseInt(value);
+		else if (name.equals("-transcripts"))
+			numTranscripts_ = Integer.parseInt(value);
+		else if (name.equals("-genes"))
+			numGenes_ = Integer.parseInt(value);
+		else if (name.equals("-samples"))
+			numSamples_ = Integer.parseInt(value);
+		else if (name.equals("-degrees"))
+			degrees_ = value;
+		else if (name.equals("-tfsPerElement"))
+			tfsPerElement_ = Double.parseDouble(value);
+		else if (name.equals("-transcriptsPerEnhancer"))
+			transcriptsPerEnhancer_ = Double.parseDouble(value);
+		else if (name.equals("-transcriptsPerPromoter"))
+			transcriptsPerPromoter_ = Double.parseDouble(value);
+		else if (name.equals("-tfHubExponent"))
+			tfHubExponent_ = Double.parseDouble(value);
+		else if (name.equals("-window"))
+			window_ = Integer.parseInt(value);
+		else if (name.equals("-minActive"))
+			minActive_ = Double.parseDouble(value);
+		else if (name.equals("-maxActive"))
+			maxActive_ = Double.parseDouble(value);
+		else
+			throw new IllegalArgumentException("Unknown parameter: " + name + " (" + Arrays.toString(PARAMETERS) + ")");
+	}
+	
+	/** The parameters of set() */
+	public static final String[] PARAMETERS = { "-tfs", "-promoters", "-enhancers", "-transcripts", "-genes", "-samples", "-degrees",
+		"-tfsPerElement", "-transcriptsPerEnhancer", "-transcriptsPerPromoter", "-tfHubExponent", "-window", "-minActive", "-maxActive" };
+	
+	public void setNumNodes(int numTfs, int numPromoters, int numEnhancers, int numTranscripts, int numGenes) {
+		numTfs_ = numTfs; numPromoters_ = numPromoters; numEnhancers_ = numEnhancers; numTranscripts_ = numTranscripts; numGenes_ = numGenes;
+	}
+	public void setNumSamples(int numSamples) { numSamples_ = numSamples; }
+	public void setDegrees(String degrees) { degrees_ = degrees; }
+	public void setTfsPerElement(double tfsPerElement) { tfsPerElement_ = tfsPerElement; }
+	public void setTranscriptsPerEnhancer(double transcriptsPerEnhancer) { transcriptsPerEnhancer_ = transcriptsPerEnhancer; }
+	public void setTranscriptsPerPromoter(double transcriptsPerPromoter) { transcriptsPerPromoter_ = transcriptsPerPromoter; }
+	public void setTfHubExponent(double tfHubExponent) { tfHubExponent_ = tfHubExponent; }
+	public void setWindow(int window) { window_ = window; }
+	public void setActive(double minActive, double maxActive) { minActive_ = minActive; maxActive_ = maxActive; }
+	
+}
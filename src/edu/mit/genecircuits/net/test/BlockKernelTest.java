@@ -0,0 +1,103 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for BlockKernel (the SIMD kernels give the same results as the scalar kernels)
+ */
+public class BlockKernelTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Link weights and max-merges for block sizes that are and are not multiples of the vector length */
+	@Test
+	public void kernelTest() {
+		
+		BlockKernel scalar = new ScalarBlockKernel();
+		BlockKernel vector = BlockKernel.getVectorKernel();
+		// The jdk.incubator.vector module is not available
+		Assume.assumeNotNull(vector);
+		
+		Random random = new Random(42);
+		int offset = 3;
+		
+		for (int n=1; n<=37; n++) {
+			// Expression with zeros (inactive samples)
+			double[] xe = randomExpr(random, offset + n);
+			double[] xt = randomExpr(random, offset + n);
+			double distanceWeight = random.nextDouble();
+			
+			for (int enhancers=0; enhancers<2; enhancers++) {
+				double[] transcriptExpr = enhancers == 1 ? xt : null;
+				double[] y1 = new double[n];
+				double[] y2 = new double[n];
+				boolean active1 = scalar.linkWeights(xe, offset, transcriptExpr, offset, distanceWeight, y1, n);
+				boolean active2 = vector.linkWeights(xe, offset, transcriptExpr, offset, distanceWeight, y2, n);
+				assertEquals(active1, active2);
+				assertArrayEquals(y1, y2, 0);
+				
+				double[] acc1 = randomExpr(random, offset + n);
+				Arrays.fill(acc1, offset, offset + n/2, BlockKernel.INACTIVE);
+				double[] acc2 = acc1.clone();
+				scalar.maxMerge(y1, acc1, offset, n);
+				vector.maxMerge(y2, acc2, offset, n);
+				assertArrayEquals(acc1, acc2, 0);
+				
+				double c = random.nextDouble() + 0.1;
+				scalar.scaledMaxMerge(c, y1, acc1, offset, n);
+				vector.scaledMaxMerge(c, y2, acc2, offset, n);
+				assertArrayEquals(acc1, acc2, 0);
+			}
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Random expression values, about a third of them 0 */
+	private double[] randomExpr(Random random, int n) {
+		
+		double[] x = new double[n];
+		for (int i=0; i<n; i++)
+			if (random.nextInt(3) != 0)
+				x[i] = 10 * random.nextDouble();
+		return x;
+	}
+
+}
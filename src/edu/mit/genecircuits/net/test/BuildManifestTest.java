@@ -0,0 +1,90 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for BuildManifest
+ */
+public class BuildManifestTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Samples are up to date only if the network and sample fingerprints are unchanged */
+	@Test
+	public void upToDateTest() throws IOException {
+		
+		String dir = "src/edu/mit/genecircuits/net/test/";
+		String[] network = { dir + "enhancer---transcript.txt", dir + "tf---enhancer.txt" };
+		ExpressionMatrix expr = new ExpressionMatrix(dir + "enhancer_expr.txt.gz");
+		String[] samples = expr.getSamples();
+		File file = File.createTempFile("manifest", ".txt");
+		file.delete();
+		
+		try {
+			// No previous manifest
+			BuildManifest manifest = new BuildManifest(file.getPath());
+			manifest.setNetwork(network);
+			manifest.setSamples(samples, new ExpressionMatrix[] { expr });
+			assertFalse(manifest.isUpToDate(samples[0]));
+			manifest.write();
+			
+			// Same inputs
+			manifest = new BuildManifest(file.getPath());
+			manifest.setNetwork(network);
+			manifest.setSamples(samples, new ExpressionMatrix[] { expr });
+			for (String sample : samples)
+				assertTrue(manifest.isUpToDate(sample));
+			
+			// Samples renamed (different columns), or different network
+			String[] shifted = new String[samples.length];
+			for (int k=0; k<samples.length; k++)
+				shifted[k] = samples[(k + 1) % samples.length];
+			manifest.setSamples(shifted, new ExpressionMatrix[] { expr });
+			assertFalse(manifest.isUpToDate(samples[0]));
+			
+			manifest = new BuildManifest(file.getPath());
+			manifest.setNetwork(new String[] { dir + "promoter---transcript.txt", dir + "tf---enhancer.txt" });
+			manifest.setSamples(samples, new ExpressionMatrix[] { expr });
+			assertFalse(manifest.isUpToDate(samples[0]));
+			
+		} finally {
+			file.delete();
+		}
+	}
+
+}
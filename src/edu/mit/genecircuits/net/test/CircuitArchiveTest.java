@@ -0,0 +1,105 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.FileExport;
+import edu.mit.genecircuits.FileParser;
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for CircuitArchive and CircuitArchiveReader
+ */
+public class CircuitArchiveTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Entries are read back by sample, and extracted to the same bytes */
+	@Test
+	public void roundTripTest() throws IOException {
+		
+		File dir = Files.createTempDirectory("archive").toFile();
+		String filename = dir.getPath() + "/enhancer---gene" + CircuitArchive.EXTENSION;
+		
+		try {
+			CircuitArchive archive = new CircuitArchive(filename);
+			for (int s=0; s<3; s++) {
+				FileExport writer = archive.openEntry("sample" + s, "enhancer---gene.sample" + s + ".txt.gz");
+				for (int k=0; k<=1000*s; k++)
+					writer.println("e" + k + "\tg" + s + "\t" + (k + 0.5));
+				writer.close();
+			}
+			archive.close();
+			assertFalse(new File(filename + ".tmp").exists());
+			
+			CircuitArchiveReader reader = new CircuitArchiveReader(filename);
+			assertArrayEquals(new String[] { "sample0", "sample1", "sample2" }, reader.getSamples());
+			
+			// Parse the entry of sample 2
+			FileParser parser = reader.openParser("sample2");
+			int numLines = 0;
+			while (parser.nextRecord()) {
+				assertEquals("g2", parser.stringField(1));
+				assertEquals(numLines + 0.5, parser.doubleField(2), 0);
+				numLines++;
+			}
+			parser.close();
+			assertEquals(2001, numLines);
+			
+			// Extract, the file is the entry
+			reader.extractAll(dir.getPath());
+			File extracted = new File(dir, "enhancer---gene.sample1.txt.gz");
+			assertArrayEquals(reader.read("sample1"), Files.readAllBytes(extracted.toPath()));
+			
+			FileParser file = new FileParser(extracted.getPath());
+			assertEquals(1001, file.readAll().size());
+			file.close();
+			
+			try {
+				reader.read("sample3");
+				fail("Missing sample should throw");
+			} catch (IllegalArgumentException e) {
+			}
+			reader.close();
+			
+		} finally {
+			for (File f : dir.listFiles())
+				f.delete();
+			dir.delete();
+		}
+	}
+
+}
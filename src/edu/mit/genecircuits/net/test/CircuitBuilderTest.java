@@ -28,6 +28,7 @@ package edu.mit.genecircuits.net.test;
 import static org.junit.Assert.*;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.*;
 
@@ -166,6 +167,88 @@ public class CircuitBuilderTest extends CircuitBuilder {
 	}
 
 	
+	/** Wiring a block of samples together gives the same circuits as wiring them one by one */
+	@Test
+	public void buildBlockTest() {
+		
+		loadPromoterExpr();
+		loadEnhancerExpr();
+		loadTranscriptExpr();
+		
+		Circuit[] block = buildTfPromoterGene(0, 3);
+		for (int i=0; i<3; i++) {
+			buildTfPromoterGene(i);
+			assertSameGenes(getCircuit(), block[i]);
+		}
+		
+		block = buildTfEnhancerGene(0, 3);
+		for (int i=0; i<3; i++) {
+			buildTfEnhancerGene(i);
+			assertSameGenes(getCircuit(), block[i]);
+		}
+	}
+
+	
+	/** Pruning keeps the top-k tf inputs per gene and the inputs above the min weight, with or without blocks */
+	@Test
+	public void pruneTest() {
+		
+		loadEnhancerExpr();
+		loadTranscriptExpr();
+		Circuit[] full = buildTfEnhancerGene(0, 3);
+		
+		double minWeight = 0.02;
+		Settings.maxTfsPerGene_ = 1;
+		Settings.minEdgeWeight_ = minWeight;
+		try {
+			Circuit[] block = buildTfEnhancerGene(0, 3);
+			for (int i=0; i<3; i++) {
+				buildTfEnhancerGene(i);
+				assertSameGenes(getCircuit(), block[i]);
+				
+				for (Gene g : full[i].getGenes().values()) {
+					// Expected: the best tf above the min weight (ties: smaller tf index), the enhancers above the min weight
+					NodeDictionary dictionary = full[i].getDictionary();
+					HashMap<String, Double> tfs = new HashMap<String, Double>();
+					String best = null;
+					double bestWeight = 0;
+					for (Map.Entry<String, Double> entry : toIdWeights(g.getTfInputs()).entrySet()) {
+						double weight = entry.getValue();
+						boolean better;
+						if (best == null)
+							better = weight >= minWeight;
+						else if (weight == bestWeight)
+							better = dictionary.getTfIndex(entry.getKey()) < dictionary.getTfIndex(best);
+						else
+							better = weight > bestWeight;
+						if (better) {
+							best = entry.getKey();
+							bestWeight = weight;
+						}
+					}
+					if (best != null)
+						tfs.put(best, bestWeight);
+					HashMap<String, Double> enhancers = new HashMap<String, Double>();
+					for (Map.Entry<String, Double> entry : toIdWeights(g.getEnhancerInputs()).entrySet())
+						if (entry.getValue() >= minWeight)
+							enhancers.put(entry.getKey(), entry.getValue());
+					
+					Gene h = getCircuit().getGene(g.getId());
+					if (tfs.isEmpty() && enhancers.isEmpty()) {
+						assertNull(h);
+					} else {
+						assertEquals(tfs, toIdWeights(h.getTfInputs()));
+						assertEquals(enhancers, toIdWeights(h.getEnhancerInputs()));
+					}
+				}
+			}
+		} finally {
+			Settings.maxTfsPerGene_ = 0;
+			Settings.minEdgeWeight_ = 0;
+		}
+	}
+
+		
 	/** tf---enhancer---gene */
 	@Test
 	public void buildTfEnhancerGeneTest() {
@@ -257,5 +340,32 @@ public class CircuitBuilderTest extends CircuitBuilder {
 	// ============================================================================
 	// PRIVATE METHODS
 
+	/** Check that the two circuits have the same genes with the same tf and enhancer inputs */
+	private void assertSameGenes(Circuit expected, Circuit actual) {
+		
+		HashMap<String, Gene> genes = expected.getGenes();
+		assertEquals(genes.size(), actual.getGenes().size());
+		
+		for (Gene g : genes.values()) {
+			Gene h = actual.getGene(g.getId());
+			assertNotNull(h);
+			assertEquals(toIdWeights(g.getTfInputs()), toIdWeights(h.getTfInputs()));
+			assertEquals(toIdWeights(g.getEnhancerInputs()), toIdWeights(h.getEnhancerInputs()));
+		}
+	}
+
+	
+	/** The weights of the inputs by node id (elements are not shared between circuits) */
+	private HashMap<String, Double> toIdWeights(Inputs inputs) {
+		
+		if (inputs == null)
+			return null;
+		
+		HashMap<String, Double> weights = new HashMap<String, Double>();
+		for (Map.Entry<Node, Double> entry : inputs.getWeights().entrySet())
+			weights.put(entry.getKey().getId(), entry.getValue());
+		return weights;
+	}
+
 
 }
@@ -0,0 +1,115 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.Settings;
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for the JFR events of circuit construction (JfrCircuitEvents)
+ */
+public class CircuitEventsTest extends CircuitBuilder {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** A run emits sample, parse, gene and write events with their counters */
+	@Test
+	public void recordingTest() throws Exception {
+		
+		Settings.loadSettings();
+		Settings.suffix_ = "";
+		Settings.circuitDir_ = "src/edu/mit/genecircuits/net/test";
+		Settings.tfEnhancerFile_ = "tf---enhancer";
+		Settings.enhancerTranscriptFile_ = "enhancer---transcript";
+		Settings.enhancerExprFile_ = "enhancer_expr";
+		Settings.transcriptExprFile_ = "transcript_expr";
+		Settings.binaryNetworks_ = false;
+		Settings.exprCache_ = false;
+		Settings.runReport_ = false;
+		
+		File dir = Files.createTempDirectory("events").toFile();
+		File jfr = new File(dir, "run.jfr");
+		Settings.circuitOutDir_ = dir.getPath();
+		
+		Recording recording = new Recording();
+		for (String event : new String[] { "Sample", "FileParse", "Gene", "FileWrite" })
+			recording.enable("edu.mit.genecircuits." + event);
+		recording.start();
+		buildTfEnhancerGene();
+		recording.stop();
+		recording.dump(jfr.toPath());
+		recording.close();
+		
+		// Events by type
+		HashMap<String, RecordedEvent> last = new HashMap<String, RecordedEvent>();
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(jfr.toPath())) {
+			String name = event.getEventType().getName();
+			last.put(name, event);
+			counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+		}
+		
+		try {
+			assertEquals(3, (int) counts.get("edu.mit.genecircuits.Sample"));
+			assertEquals(3, (int) counts.get("edu.mit.genecircuits.FileWrite"));
+			assertTrue(counts.get("edu.mit.genecircuits.FileParse") >= 4);
+			assertTrue(counts.get("edu.mit.genecircuits.Gene") >= 3);
+			
+			assertTrue(last.get("edu.mit.genecircuits.Sample").getInt("numGenes") > 0);
+			assertTrue(last.get("edu.mit.genecircuits.FileWrite").getLong("bytes") > 0);
+			assertTrue(last.get("edu.mit.genecircuits.FileParse").getLong("lines") > 0);
+			assertTrue(last.get("edu.mit.genecircuits.FileParse").getLong("bytes") > 0);
+			assertTrue(last.get("edu.mit.genecircuits.Gene").getInt("tfFanIn") >= last.get("edu.mit.genecircuits.Gene").getInt("tfsKept"));
+			
+		} finally {
+			File[] outDirs = dir.listFiles();
+			for (File outDir : outDirs) {
+				File[] files = outDir.listFiles();
+				if (files != null)
+					for (File file : files)
+						file.delete();
+				outDir.delete();
+			}
+			dir.delete();
+		}
+	}
+	
+}
@@ -0,0 +1,84 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for CsrMatrix
+ */
+public class CsrMatrixTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Build from unsorted coordinates with duplicates, transpose */
+	@Test
+	public void buildTest() {
+		
+		CsrMatrix.Builder builder = new CsrMatrix.Builder();
+		builder.add(2, 1, 0.5);
+		builder.add(0, 3, 0.1);
+		builder.add(0, 0, 0.2);
+		builder.add(2, 1, 0.7);
+		builder.add(2, 1, 0.6);
+		builder.add(0, 2, 0.3);
+		
+		CsrMatrix m = builder.build(4, 5);
+		assertEquals(4, m.getNumRows());
+		assertEquals(5, m.getNumCols());
+		assertEquals(4, m.getNnz());
+		
+		// Row 0 sorted by column
+		assertEquals(3, m.rowEnd(0) - m.rowStart(0));
+		assertEquals(0, m.col(m.rowStart(0)));
+		assertEquals(2, m.col(m.rowStart(0) + 1));
+		assertEquals(3, m.col(m.rowStart(0) + 2));
+		// Empty rows, including rows beyond the matrix
+		assertEquals(m.rowStart(1), m.rowEnd(1));
+		assertEquals(m.rowStart(3), m.rowEnd(3));
+		assertEquals(m.rowStart(10), m.rowEnd(10));
+		// Max of duplicates
+		assertEquals(0.7, m.get(2, 1), 0);
+		assertEquals(0.3, m.get(0, 2), 0);
+		assertEquals(0, m.get(1, 1), 0);
+		
+		CsrMatrix t = m.transpose();
+		assertEquals(5, t.getNumRows());
+		assertEquals(4, t.getNumCols());
+		assertEquals(4, t.getNnz());
+		for (int r=0; r<4; r++)
+			for (int c=0; c<5; c++)
+				assertEquals(m.get(r, c), t.get(c, r), 0);
+	}
+
+}
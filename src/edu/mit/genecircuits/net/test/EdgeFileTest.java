@@ -0,0 +1,103 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for EdgeFile
+ */
+public class EdgeFileTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** The global network loaded from binary edge files is the same as from the text files */
+	@Test
+	public void convertTest() throws IOException {
+		
+		String dir = "src/edu/mit/genecircuits/net/test/";
+		File tfElement = File.createTempFile("tf---enhancer", EdgeFile.EXTENSION);
+		File elementTranscript = File.createTempFile("enhancer---transcript", EdgeFile.EXTENSION);
+		
+		try {
+			EdgeFile.convert(dir + "tf---enhancer.txt", tfElement.getPath(), EdgeFile.TF_ELEMENT);
+			EdgeFile.convert(dir + "enhancer---transcript.txt", elementTranscript.getPath(), EdgeFile.ENHANCER_TRANSCRIPT);
+			
+			GlobalNetwork text = new GlobalNetwork(new NodeDictionary());
+			text.loadEnhancerTranscript(dir + "enhancer---transcript.txt");
+			text.loadTfElement(dir + "tf---enhancer.txt");
+			
+			GlobalNetwork binary = new GlobalNetwork(new NodeDictionary());
+			binary.loadEnhancerTranscript(elementTranscript.getPath());
+			binary.loadTfElement(tfElement.getPath());
+			
+			// Same dictionary indexes, same layers
+			NodeDictionary d1 = text.getDictionary();
+			NodeDictionary d2 = binary.getDictionary();
+			assertEquals(d1.getNumTfs(), d2.getNumTfs());
+			assertEquals(d1.getNumElements(), d2.getNumElements());
+			assertEquals(d1.getNumTranscripts(), d2.getNumTranscripts());
+			assertEquals(d1.getNumGenes(), d2.getNumGenes());
+			for (int i=0; i<d1.getNumElements(); i++)
+				assertEquals(d1.getElementId(i), d2.getElementId(i));
+			
+			assertSameMatrix(text.getElementTf(), binary.getElementTf());
+			assertSameMatrix(text.getElementTranscript(), binary.getElementTranscript());
+			assertSameMatrix(text.getTranscriptGene(), binary.getTranscriptGene());
+			
+		} finally {
+			tfElement.delete();
+			elementTranscript.delete();
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Check that the matrices have the same entries */
+	private void assertSameMatrix(CsrMatrix expected, CsrMatrix actual) {
+		
+		assertEquals(expected.getNumRows(), actual.getNumRows());
+		assertEquals(expected.getNumCols(), actual.getNumCols());
+		assertEquals(expected.getNnz(), actual.getNnz());
+		for (int k=0; k<expected.getNnz(); k++) {
+			assertEquals(expected.col(k), actual.col(k));
+			assertEquals(expected.value(k), actual.value(k), 0);
+		}
+	}
+
+}
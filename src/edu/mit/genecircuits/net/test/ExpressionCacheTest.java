@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for ExpressionCache
+ */
+public class ExpressionCacheTest {
+	
+	/** Temporary copy of the test expression file */
+	private static File exprFile_ = null;
+	
+	
+	// ============================================================================
+	// SETUP
+	
+	@BeforeClass
+	public static void testSetup() throws IOException {
+
+		exprFile_ = File.createTempFile("enhancer_expr", ".txt.gz");
+		copy(new File("src/edu/mit/genecircuits/net/test/enhancer_expr.txt.gz"), exprFile_);
+	}
+
+	
+	@AfterClass
+	public static void testCleanup() {
+		
+		new File(ExpressionCache.getCacheFilename(exprFile_.getPath())).delete();
+		exprFile_.delete();
+	}
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Write the cache, load it, and ignore it once the source changed */
+	@Test
+	public void cacheTest() {
+		
+		String filename = exprFile_.getPath();
+		File cache = new File(ExpressionCache.getCacheFilename(filename));
+		
+		// First load writes the cache
+		ExpressionMatrix parsed = new ExpressionMatrix(filename, true);
+		assertTrue(cache.exists());
+		
+		// Second load reads it
+		assertTrue(ExpressionCache.read(parsed, filename));
+		ExpressionMatrix cached = new ExpressionMatrix(filename, true);
+		assertArrayEquals(parsed.getSamples(), cached.getSamples());
+		assertArrayEquals(parsed.getNodes(), cached.getNodes());
+		assertEquals(parsed.getNnz(), cached.getNnz());
+		for (int k=0; k<parsed.getNumSamples(); k++) {
+			assertEquals(parsed.colStart(k), cached.colStart(k));
+			assertEquals(parsed.colEnd(k), cached.colEnd(k));
+			for (int p=parsed.colStart(k); p<parsed.colEnd(k); p++) {
+				assertEquals(parsed.row(p), cached.row(p));
+				assertEquals(parsed.value(p), cached.value(p), 0);
+			}
+		}
+		
+		// Stale cache
+		assertTrue(exprFile_.setLastModified(exprFile_.lastModified() - 10000));
+		assertFalse(ExpressionCache.read(cached, filename));
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Copy a file */
+	private static void copy(File from, File to) throws IOException {
+		
+		InputStream in = new FileInputStream(from);
+		OutputStream out = new FileOutputStream(to);
+		byte[] buffer = new byte[8192];
+		for (int n=in.read(buffer); n>0; n=in.read(buffer))
+			out.write(buffer, 0, n);
+		in.close();
+		out.close();
+	}
+
+}
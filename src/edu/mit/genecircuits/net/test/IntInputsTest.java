@@ -0,0 +1,107 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for IntInputs
+ */
+public class IntInputsTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Max is kept for nodes that are added several times */
+	@Test
+	public void addTest() {
+		
+		IntInputs in = new IntInputs(2);
+		in.add(3, 0.2);
+		in.add(7, 0.5);
+		in.add(3, 0.1);
+		in.add(7, 0.6);
+		in.add(0, 0.3);
+		
+		assertEquals(3, in.size());
+		assertEquals(0.2, in.get(3), 0);
+		assertEquals(0.6, in.get(7), 0);
+		assertEquals(0.3, in.get(0), 0);
+		assertTrue(Double.isNaN(in.get(1)));
+		
+		// Insertion order
+		assertEquals(3, in.getNode(0));
+		assertEquals(7, in.getNode(1));
+		assertEquals(0, in.getNode(2));
+		
+		in.multiply(2);
+		assertEquals(1.2, in.get(7), 1e-12);
+		
+		in.clear();
+		assertEquals(0, in.size());
+		assertTrue(Double.isNaN(in.get(7)));
+		in.add(7, 0.1);
+		assertEquals(0.1, in.get(7), 0);
+	}
+
+	
+	/** Same weights as Inputs on random data (several rounds of clear() and growth) */
+	@Test
+	public void randomTest() {
+		
+		Random rng = new Random(42);
+		IntInputs in = new IntInputs();
+		
+		for (int round=0; round<5; round++) {
+			in.clear();
+			HashMap<Integer, Double> expected = new HashMap<Integer, Double>();
+			int numNodes = 1 + rng.nextInt(2000);
+			
+			for (int i=0; i<5000; i++) {
+				int node = rng.nextInt(numNodes);
+				double w = rng.nextDouble();
+				in.add(node, w);
+				Double prev = expected.get(node);
+				if (prev == null || w > prev)
+					expected.put(node, w);
+			}
+			
+			assertEquals(expected.size(), in.size());
+			for (int k=0; k<in.size(); k++)
+				assertEquals(expected.get(in.getNode(k)), in.getWeight(k), 0);
+		}
+	}
+
+}
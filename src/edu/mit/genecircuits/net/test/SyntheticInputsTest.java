@@ -0,0 +1,108 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.net.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.Settings;
+import edu.mit.genecircuits.net.*;
+
+
+/**
+ * Unit tests for SyntheticInputs
+ */
+public class SyntheticInputsTest extends CircuitBuilder {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** The generated inputs are read by CircuitBuilder, the same seed gives the same files */
+	@Test
+	public void generateTest() throws Exception {
+		
+		Settings.loadSettings();
+		Settings.randomSeed_ = 7;
+		Settings.suffix_ = "";
+		File dir1 = Files.createTempDirectory("synthetic").toFile();
+		File dir2 = Files.createTempDirectory("synthetic").toFile();
+		
+		SyntheticInputs inputs = new SyntheticInputs();
+		inputs.setNumNodes(50, 300, 200, 400, 100);
+		inputs.setNumSamples(5);
+		inputs.setDegrees("geometric");
+		
+		try {
+			Settings.circuitDir_ = dir2.getPath();
+			inputs.writeEnhancerInputs();
+			inputs.writePromoterInputs();
+			Settings.circuitDir_ = dir1.getPath();
+			inputs.writeEnhancerInputs();
+			inputs.writePromoterInputs();
+			
+			String[] files = { Settings.tfEnhancerFile_ + ".txt", Settings.enhancerTranscriptFile_ + ".txt", Settings.tfPromoterFile_ + ".txt",
+					Settings.promoterTranscriptFile_ + ".txt", Settings.enhancerExprFile_ + ".txt.gz", Settings.transcriptExprFile_ + ".txt.gz" };
+			for (String file : files)
+				assertArrayEquals(file, Files.readAllBytes(new File(dir1, file).toPath()), Files.readAllBytes(new File(dir2, file).toPath()));
+			
+			// Circuits of the first and last sample
+			loadEnhancerExpr();
+			loadTranscriptExpr();
+			buildTfEnhancerGene(0);
+			assertEquals(5, getSamples().length);
+			assertTrue(getCircuit().getGeneList().size() > 0);
+			assertTrue(getCircuit().getTfList().size() <= 50);
+			
+			loadPromoterExpr();
+			buildTfPromoterGene(4);
+			assertTrue(getCircuit().getGeneList().size() > 0);
+			
+		} finally {
+			delete(dir1);
+			delete(dir2);
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Delete the directory recursively */
+	private void delete(File file) {
+		
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+	
+}
@@ -4,12 +4,22 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import edu.mit.genecircuits.net.test.BlockKernelTest;
+import edu.mit.genecircuits.net.test.BuildManifestTest;
+import edu.mit.genecircuits.net.test.CircuitArchiveTest;
 import edu.mit.genecircuits.net.test.CircuitBuilderTest;
+import edu.mit.genecircuits.net.test.CircuitEventsTest;
+import edu.mit.genecircuits.net.test.CsrMatrixTest;
+import edu.mit.genecircuits.net.test.EdgeFileTest;
+import edu.mit.genecircuits.net.test.ExpressionCacheTest;
+import edu.mit.genecircuits.net.test.IntInputsTest;
+import edu.mit.genecircuits.net.test.SyntheticInputsTest;
 
 @RunWith(Suite.class)
 //@SuiteClasses({ NetworkTest.class, AnalyzerBasicPropertiesTest.class, AnalyzerShortestPathsTest.class, 
 //	AnalyzerPstepKernelTest.class })
-@SuiteClasses({ CircuitBuilderTest.class })
+@SuiteClasses({ CircuitBuilderTest.class, IntInputsTest.class, CsrMatrixTest.class, BlockKernelTest.class, ExpressionCacheTest.class, EdgeFileTest.class, CircuitArchiveTest.class, BuildManifestTest.class, SyntheticInputsTest.class, CircuitEventsTest.class, 
+	FileParserTest.class, DecimalParserTest.class, BgzfTest.class, ScientificFormatTest.class, WritePipelineTest.class, RunMetricsTest.class, ProgressMonitorTest.class })
 public class AllTests {
 
 }
@@ -0,0 +1,160 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.BgzfInputStream;
+import edu.mit.genecircuits.BgzfOutputStream;
+
+
+/**
+ * Unit tests for BgzfOutputStream and BgzfInputStream
+ */
+public class BgzfTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Several blocks, readable with GZIPInputStream and with BgzfInputStream (one and several threads) */
+	@Test
+	public void roundTripTest() throws IOException {
+		
+		// Compressible text and incompressible bytes, several blocks
+		Random random = new Random(42);
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		for (int i=0; i<20000; i++)
+			data.write(("e" + i + "\t" + random.nextInt(1000) + "\t0.5\n").getBytes("UTF-8"));
+		byte[] noise = new byte[3*BgzfOutputStream.BLOCK_SIZE];
+		random.nextBytes(noise);
+		data.write(noise);
+		byte[] expected = data.toByteArray();
+		
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		OutputStream out = new BgzfOutputStream(compressed, 6);
+		out.write(expected, 0, 1000);
+		out.flush();
+		out.write(expected, 1000, expected.length - 1000);
+		out.close();
+		byte[] bgzf = compressed.toByteArray();
+		
+		InputStream in = new BufferedInputStream(new ByteArrayInputStream(bgzf));
+		assertTrue(BgzfInputStream.isBgzf(in));
+		
+		assertArrayEquals(expected, readAll(new GZIPInputStream(new ByteArrayInputStream(bgzf))));
+		assertArrayEquals(expected, readAll(new BgzfInputStream(new ByteArrayInputStream(bgzf))));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertArrayEquals(expected, readAll(new BgzfInputStream(new ByteArrayInputStream(bgzf), executor, 4)));
+			// The executor is shared, closing a stream does not shut it down
+			assertArrayEquals(expected, readAll(new BgzfInputStream(new ByteArrayInputStream(bgzf), executor, 4)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	
+	/** Blocks compressed on a thread pool are written in order, with the same bytes as sequential compression */
+	@Test
+	public void parallelWriteTest() throws IOException {
+		
+		Random random = new Random(7);
+		byte[] expected = new byte[200000];
+		for (int i=0; i<expected.length; i++)
+			expected[i] = (byte) ('a' + random.nextInt(4));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+			OutputStream out = new BgzfOutputStream(parallel, 1, 1000, executor);
+			for (int i=0; i<expected.length; i+=333)
+				out.write(expected, i, Math.min(333, expected.length - i));
+			out.close();
+			
+			ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+			out = new BgzfOutputStream(sequential, 1, 1000, null);
+			out.write(expected);
+			out.close();
+			
+			assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+			assertArrayEquals(expected, readAll(new GZIPInputStream(new ByteArrayInputStream(parallel.toByteArray()))));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	
+	/** Plain gzip and gzip headers with other optional fields are not detected as BGZF */
+	@Test
+	public void plainGzipTest() throws IOException {
+		
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		OutputStream out = new GZIPOutputStream(compressed);
+		out.write("a\tb\n".getBytes("UTF-8"));
+		out.close();
+		
+		InputStream in = new BufferedInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		assertFalse(BgzfInputStream.isBgzf(in));
+		assertEquals(31, in.read());
+		
+		// A BGZF extra field with a file name (FLG = FEXTRA | FNAME) is not BGZF
+		byte[] member = BgzfOutputStream.compress("a\tb\n".getBytes("UTF-8"), 4, 6);
+		member[3] = 4 | 8;
+		assertFalse(BgzfInputStream.isBgzf(new BufferedInputStream(new ByteArrayInputStream(member))));
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Read the stream until the end, close it */
+	private byte[] readAll(InputStream in) throws IOException {
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[7000];
+		for (int n=in.read(buffer); n>=0; n=in.read(buffer))
+			out.write(buffer, 0, n);
+		in.close();
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.DecimalParser;
+
+
+/**
+ * Unit tests for DecimalParser (same results as Double.parseDouble)
+ */
+public class DecimalParserTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Fixed cases, including the fall back to Double.parseDouble() */
+	@Test
+	public void casesTest() {
+		
+		String[] cases = { "0", "-0", "+0.0", "1", "-1", "12.5", "0.1", ".5", "5.", "3.25e-4", "3.25E+04", 
+				"1e22", "1e23", "1e-22", "1e-23", "123456789012345", "1234567890123456789", "0.30000000000000004", 
+				"4.9e-324", "1.7976931348623157e308", "1e400", "NaN", "-Infinity", "0x1p3", "00012.50", "1.0d" };
+		
+		for (String s : cases)
+			assertParsed(s);
+	}
+	
+	
+	/** Random numbers in the formats of the input files */
+	@Test
+	public void randomTest() {
+		
+		Random random = new Random(42);
+		for (int i=0; i<50000; i++) {
+			double x = random.nextDouble() * Math.pow(10, random.nextInt(12) - 6);
+			assertParsed(Double.toString(x));
+			assertParsed(String.format(Locale.US, "%." + random.nextInt(12) + "f", x));
+			assertParsed(String.format(Locale.US, "%." + random.nextInt(12) + "E", -x));
+			assertParsed(Integer.toString(random.nextInt()));
+		}
+	}
+
+	
+	/** Invalid numbers throw NumberFormatException */
+	@Test
+	public void invalidTest() {
+		
+		String[] cases = { "", "-", ".", "e5", "1e", "1.2.3", "abc", "1e+" };
+		for (String s : cases) {
+			try {
+				DecimalParser.parseDouble(s);
+				fail("No exception for: " + s);
+			} catch (NumberFormatException e) {
+			}
+		}
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Check that the string is parsed to the same double as Double.parseDouble() */
+	private void assertParsed(String s) {
+		
+		long expected = Double.doubleToRawLongBits(Double.parseDouble(s));
+		long actual = Double.doubleToRawLongBits(DecimalParser.parseDouble(s));
+		assertEquals(s, expected, actual);
+	}
+
+}
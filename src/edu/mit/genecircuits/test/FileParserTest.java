@@ -0,0 +1,140 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.FileParser;
+
+
+/**
+ * Unit tests for FileParser
+ */
+public class FileParserTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Line terminators, empty fields, long lines and typed fields with the cursor API */
+	@Test
+	public void cursorTest() throws IOException {
+		
+		StringBuilder longLine = new StringBuilder("long");
+		for (int i=0; i<30000; i++)
+			longLine.append("\t").append(i);
+		
+		File file = write("a\tb\tc\n1\t-2\t3.5e-1\r\n\t\t\r" + longLine + "\nlast\t+7");
+		try {
+			FileParser parser = new FileParser(file.getPath(), true);
+			
+			assertTrue(parser.nextRecord());
+			assertEquals(3, parser.getNumFields());
+			assertEquals("b", parser.field(1).toString());
+			
+			assertTrue(parser.nextRecord());
+			assertEquals(1, parser.intField(0));
+			assertEquals(-2, parser.intField(1));
+			assertEquals(0.35, parser.doubleField(2), 0);
+			
+			// Empty fields
+			assertTrue(parser.nextRecord());
+			assertEquals(3, parser.getNumFields());
+			assertEquals(0, parser.field(2).length());
+			
+			// Longer than the initial buffer
+			assertTrue(parser.nextRecord());
+			assertEquals(30001, parser.getNumFields());
+			assertEquals("long", parser.stringField(0));
+			assertEquals(29999, parser.intField(30000));
+			
+			// No terminator
+			assertTrue(parser.nextRecord());
+			assertEquals("last", parser.stringField(0));
+			assertEquals(7, parser.intField(1));
+			assertFalse(parser.nextRecord());
+			assertEquals(5, parser.getNumLines());
+			assertEquals(file.length(), parser.getNumBytes());
+			parser.close();
+			
+			// Same lines with readLine()
+			parser = new FileParser(file.getPath(), true);
+			assertArrayEquals(new String[] { "a", "b", "c" }, parser.readLine());
+			parser.skipLines(1);
+			assertArrayEquals(new String[] { "", "", "" }, parser.readLine());
+			assertEquals(30001, parser.readLine().length);
+			assertArrayEquals(new String[] { "last", "+7" }, parser.readLine());
+			assertNull(parser.readLine());
+			parser.close();
+			
+		} finally {
+			file.delete();
+		}
+	}
+
+	
+	/** Multi-char separators */
+	@Test
+	public void separatorTest() throws IOException {
+		
+		File file = write("id: 1: x\n");
+		try {
+			FileParser parser = new FileParser(file.getPath(), true);
+			parser.setSeparator(": ");
+			assertTrue(parser.nextRecord());
+			assertEquals(3, parser.getNumFields());
+			assertEquals("id", parser.stringField(0));
+			assertEquals(1, parser.intField(1));
+			assertEquals("x", parser.stringField(2));
+			parser.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Write the text to a temporary file */
+	private File write(String text) throws IOException {
+		
+		File file = File.createTempFile("parser", ".txt");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		writer.write(text);
+		writer.close();
+		return file;
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.ProgressMonitor;
+
+
+/**
+ * Unit tests for ProgressMonitor
+ */
+public class ProgressMonitorTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Items completed concurrently are all counted, each worker has its own busy time */
+	@Test
+	public void concurrentTest() throws InterruptedException {
+		
+		final int numThreads = 4;
+		final int numItems = 1000;
+		final ProgressMonitor progress = new ProgressMonitor(numThreads*numItems, null, numThreads, 10);
+		progress.start();
+		
+		Thread[] threads = new Thread[numThreads];
+		for (int t=0; t<numThreads; t++) {
+			final int offset = t*numItems;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i=0; i<numItems; i++)
+						progress.completed(offset + i, offset + i + 1, 3, 1000);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		progress.done();
+		
+		assertEquals(numThreads*numItems, progress.getNumDone());
+		assertEquals(3L*numThreads*numItems, progress.getNumEdges());
+		for (int w=0; w<numThreads; w++)
+			assertEquals(1000L*numItems, progress.getBusyTime(w));
+		assertEquals(0, progress.getEta(), 0);
+	}
+	
+	
+	/** The ETA is the remaining weight at the observed rate */
+	@Test
+	public void etaTest() throws InterruptedException {
+		
+		long t0 = System.nanoTime();
+		ProgressMonitor progress = new ProgressMonitor(3, new double[] { 1, 1, 8 }, 1, 0);
+		assertTrue(Double.isNaN(progress.getEta()));
+		
+		Thread.sleep(50);
+		progress.completed(0, 2, 0, 0);
+		double eta = progress.getEta();
+		double elapsed = (System.nanoTime() - t0) / 1e9;
+		
+		// 2 of 10 done: 4 times the elapsed time remains
+		assertTrue(eta <= 4*elapsed);
+		assertTrue(eta >= 4*0.05);
+	}
+
+}
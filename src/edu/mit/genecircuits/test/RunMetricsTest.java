@@ -0,0 +1,95 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.RunMetrics;
+import edu.mit.genecircuits.Settings;
+
+
+/**
+ * Unit tests for RunMetrics
+ */
+public class RunMetricsTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** The phases recorded by several threads are all in the report, with their counters */
+	@Test
+	public void reportTest() throws Exception {
+		
+		Settings.loadSettings();
+		final RunMetrics metrics = new RunMetrics();
+		metrics.begin(RunMetrics.LOAD, null, "net \"1\".txt").end(10, 20, 300);
+		
+		Thread[] threads = new Thread[4];
+		for (int t=0; t<threads.length; t++) {
+			final String sample = "s" + t;
+			threads[t] = new Thread() {
+				public void run() {
+					metrics.begin(RunMetrics.WIRE, sample, null).end(1, 5, 0);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		metrics.finish();
+		
+		File dir = Files.createTempDirectory("metrics").toFile();
+		try {
+			metrics.write(dir + "/report");
+			List<String> tsv = Files.readAllLines(new File(dir, "report.tsv").toPath());
+			assertEquals(6, tsv.size());
+			String[] load = tsv.get(1).split("\t");
+			assertEquals("load", load[0]);
+			assertEquals("net \"1\".txt", load[2]);
+			assertEquals("10", load[5]);
+			assertEquals("20", load[6]);
+			assertEquals("300", load[7]);
+			
+			String json = new String(Files.readAllBytes(new File(dir, "report.json").toPath()), "UTF-8");
+			assertTrue(json.contains("\"item\": \"net \\\"1\\\".txt\""));
+			assertTrue(json.contains("{ \"phase\": \"wire\", \"count\": 4,"));
+			assertTrue(json.contains("\"rows\": 4, \"edges\": 20, \"bytes\": 0"));
+			
+		} finally {
+			new File(dir, "report.tsv").delete();
+			new File(dir, "report.json").delete();
+			dir.delete();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.ScientificFormat;
+
+
+/**
+ * Unit tests for ScientificFormat (same output as DecimalFormat("0.#######E0#"))
+ */
+public class ScientificFormatTest {
+	
+	/** The reference format */
+	private DecimalFormat reference_ = new DecimalFormat("0.#######E0#");
+	/** Buffer, with some offset and room after the number */
+	private char[] buf_ = new char[ScientificFormat.MAX_LENGTH + 10];
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** Special values, extremes, and rounding at the last digit */
+	@Test
+	public void casesTest() {
+		
+		double[] cases = { 0, -0.0, 1, -1, 0.5, 10, 0.1, 1.5e-5, 123456789, 99999999.5, 99999999.4, 9.99999995, 
+				9.99999985, 1.00000005, 1.00000015, 1.00000025, 0.125, 3.3333333333, Double.MIN_VALUE, -Double.MIN_VALUE, 
+				Double.MIN_NORMAL, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		
+		for (double x : cases)
+			assertFormatted(x);
+	}
+	
+	
+	/** Powers of ten and their neighbors, over the whole range of exponents */
+	@Test
+	public void powersOfTenTest() {
+		
+		for (int k=-324; k<=308; k++) {
+			double x = Double.parseDouble("1e" + k);
+			assertFormatted(x);
+			assertFormatted(Math.nextUp(x));
+			assertFormatted(Math.nextDown(x));
+			assertFormatted(-x);
+		}
+	}
+	
+	
+	/** Doubles closest to a tie (9th significant digit 5) and their neighbors, over the whole range of exponents */
+	@Test
+	public void tiesTest() {
+		
+		Random random = new Random(42);
+		for (int i=0; i<200000; i++) {
+			long digits = 100000000L + random.nextInt(900000000) / 10 * 10 + 5;
+			int exponent = random.nextInt(600) - 300;
+			double x = new BigDecimal(digits).scaleByPowerOfTen(exponent).doubleValue();
+			assertFormatted(x);
+			assertFormatted(Math.nextUp(x));
+			assertFormatted(Math.nextDown(x));
+		}
+		
+		// Exact ties (dyadic)
+		for (int i=0; i<100000; i++)
+			assertFormatted((random.nextInt(1 << 28) | 1) / (double) (1 << (random.nextInt(30))));
+	}
+	
+	
+	/** Random bit patterns (all finite doubles) and random weights as in the circuit files */
+	@Test
+	public void randomTest() {
+		
+		Random random = new Random(7);
+		for (int i=0; i<1000000; i++)
+			assertFormatted(Double.longBitsToDouble(random.nextLong()));
+		for (int i=0; i<1000000; i++)
+			assertFormatted(random.nextDouble() * Math.sqrt(random.nextDouble() * 1000) * 1.1);
+	}
+	
+	
+	// ============================================================================
+	// PRIVATE METHODS
+
+	/** Check that x is formatted as with DecimalFormat, as a String and in a buffer */
+	private void assertFormatted(double x) {
+		
+		String expected = reference_.format(x);
+		assertEquals(Double.toString(x), expected, ScientificFormat.toString(x));
+		
+		int end = ScientificFormat.format(x, buf_, 3);
+		assertEquals(expected, new String(buf_, 3, end - 3));
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+Copyright (c) 2013 Daniel Marbach
+
+We release this software open source under an MIT license (see below). If this
+software was useful for your scientific work, please cite our paper available at:
+http://networkinference.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+ */
+package edu.mit.genecircuits.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import edu.mit.genecircuits.WritePipeline;
+
+
+/**
+ * Unit tests for WritePipeline
+ */
+public class WritePipelineTest {
+	
+	
+	// ============================================================================
+	// TESTS
+
+	/** All jobs are run, the queue never holds more than its capacity */
+	@Test
+	public void runTest() {
+		
+		for (int numWriters=0; numWriters<=3; numWriters++) {
+			final AtomicInteger count = new AtomicInteger();
+			WritePipeline pipeline = new WritePipeline(numWriters, 2);
+			for (int i=0; i<100; i++) {
+				pipeline.submit(new Runnable() {
+					public void run() {
+						count.incrementAndGet();
+					}
+				});
+			}
+			pipeline.close();
+			
+			assertEquals(100, count.get());
+			assertEquals(100, pipeline.getNumJobs());
+			assertTrue(pipeline.getMaxDepth() <= 2);
+		}
+	}
+	
+	
+	/** Producers block while the queue is full */
+	@Test
+	public void backpressureTest() throws InterruptedException {
+		
+		final CountDownLatch release = new CountDownLatch(1);
+		final WritePipeline pipeline = new WritePipeline(1, 1);
+		final Runnable blocked = new Runnable() {
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		
+		// The writer blocks on the first job, the second fills the queue, the third must wait
+		final AtomicInteger submitted = new AtomicInteger();
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				for (int i=0; i<3; i++) {
+					pipeline.submit(blocked);
+					submitted.incrementAndGet();
+				}
+			}
+		});
+		producer.start();
+		Thread.sleep(200);
+		assertTrue(submitted.get() < 3);
+		
+		release.countDown();
+		producer.join();
+		pipeline.close();
+		assertEquals(3, submitted.get());
+		assertTrue(pipeline.getStallTime() > 0);
+	}
+	
+	
+	/** The exception of a failed job is rethrown by close() */
+	@Test(expected = RuntimeException.class)
+	public void errorTest() {
+		
+		WritePipeline pipeline = new WritePipeline(2, 4);
+		pipeline.submit(new Runnable() {
+			public void run() {
+				throw new IllegalStateException("Disk full");
+			}
+		});
+		pipeline.close();
+	}
+	
+	
+	/** An error (not an exception) in a job neither stops the writer nor blocks the producer */
+	@Test(timeout = 10000)
+	public void fatalErrorTest() {
+		
+		WritePipeline pipeline = new WritePipeline(1, 1);
+		pipeline.submit(new Runnable() {
+			public void run() {
+				throw new AssertionError("Fatal");
+			}
+		});
+		
+		// The writer keeps taking (and dropping) jobs, until submit() reports the failure
+		RuntimeException error = null;
+		try {
+			for (int i=0; i<100; i++)
+				pipeline.submit(new Runnable() {
+					public void run() {}
+				});
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		assertNotNull(error);
+		assertTrue(error.getCause() instanceof AssertionError);
+		
+		// close() stops the writer and rethrows it too
+		try {
+			pipeline.close();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof AssertionError);
+		}
+	}
+
+}